@@ -0,0 +1,116 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.client.render;
+
+import dan200.computercraft.core.terminal.Terminal;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares packing a whole monitor into the texture buffer against packing only the rows which have changed. This only
+ * measures {@link TileEntityMonitorRenderer#writeTboRows(ByteBuffer, Terminal, int, int)}, and so does not need a GPU.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class MonitorTboBenchmark
+{
+    /**
+     * The size of the largest (8x6 block) monitor at the smallest text scale.
+     */
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 80;
+
+    /**
+     * The number of rows changed between frames.
+     */
+    @Param( { "1", "8", "80" } )
+    public int changedRows;
+
+    private Terminal terminal;
+    private ByteBuffer buffer;
+    private final BitSet dirty = new BitSet();
+    private String line;
+    private int frame;
+
+    @Setup
+    public void setup()
+    {
+        terminal = new Terminal( WIDTH, HEIGHT );
+        Random random = new Random( 0 );
+
+        StringBuilder builder = new StringBuilder( WIDTH );
+        for( int x = 0; x < WIDTH; x++ ) builder.append( (char) (' ' + random.nextInt( 95 )) );
+        line = builder.toString();
+
+        for( int y = 0; y < HEIGHT; y++ )
+        {
+            terminal.setTextColour( random.nextInt( 16 ) );
+            terminal.setBackgroundColour( random.nextInt( 16 ) );
+            terminal.setCursorPos( 0, y );
+            terminal.write( line );
+        }
+        terminal.pollChanges( new BitSet() );
+
+        buffer = ByteBuffer.allocateDirect( WIDTH * HEIGHT * TileEntityMonitorRenderer.TBO_CELL_SIZE );
+    }
+
+    /**
+     * Simulate a frame's worth of changes, writing to a block of consecutive rows.
+     */
+    private void change()
+    {
+        int start = frame++ % (HEIGHT - changedRows + 1);
+        terminal.setTextColour( frame & 15 );
+        for( int y = start; y < start + changedRows; y++ )
+        {
+            terminal.setCursorPos( 0, y );
+            terminal.write( line );
+        }
+    }
+
+    @Benchmark
+    public void full( Blackhole blackhole )
+    {
+        change();
+        dirty.clear();
+        terminal.pollChanges( dirty );
+
+        buffer.clear();
+        TileEntityMonitorRenderer.writeTboRows( buffer, terminal, 0, HEIGHT );
+        buffer.flip();
+        blackhole.consume( buffer );
+    }
+
+    @Benchmark
+    public void dirtyRows( Blackhole blackhole )
+    {
+        change();
+        dirty.clear();
+        terminal.pollChanges( dirty );
+
+        // Mirror the renderer, which packs and uploads each run of changed rows separately.
+        for( int start = dirty.nextSetBit( 0 ); start >= 0; )
+        {
+            int end = dirty.nextClearBit( start );
+
+            buffer.clear();
+            TileEntityMonitorRenderer.writeTboRows( buffer, terminal, start, end );
+            buffer.flip();
+            blackhole.consume( buffer );
+
+            start = dirty.nextSetBit( end );
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.handles;
+
+import dan200.computercraft.api.lua.LuaException;
+import dan200.computercraft.api.lua.ObjectArguments;
+import dan200.computercraft.core.filesystem.FileMount;
+import dan200.computercraft.core.filesystem.FileSystem;
+import dan200.computercraft.core.filesystem.FileSystemException;
+import dan200.computercraft.core.filesystem.FileSystemWrapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Compares writing 1 MB to a file with {@link BinaryWritableHandle}, with and without a {@link BufferedWritableChannel},
+ * using writes of 1 byte, 1 KB and 1 MB. Each write goes through {@link FileMount}'s space accounting, as it would from
+ * {@code fs.open(path, "wb")}.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class BinaryWriteBenchmark
+{
+    private static final int TOTAL = 1024 * 1024;
+
+    @Param( { "1", "1024", "1048576" } )
+    public int writeSize;
+
+    private Path root;
+    private FileSystem fileSystem;
+    private ObjectArguments chunk;
+
+    @Setup
+    public void setup() throws IOException, FileSystemException
+    {
+        root = Files.createTempDirectory( "cc-write" );
+        fileSystem = new FileSystem( "hdd", new FileMount( root.toFile(), 16L * TOTAL ) );
+
+        // Strings are written as one byte per character, as they would be from Lua.
+        chunk = new ObjectArguments( "x".repeat( writeSize ) );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        fileSystem.close();
+        try( Stream<Path> paths = Files.walk( root ) )
+        {
+            paths.sorted( Comparator.reverseOrder() ).map( Path::toFile ).forEach( File::delete );
+        }
+    }
+
+    @Benchmark
+    public void buffered() throws FileSystemException, LuaException
+    {
+        write( BufferedWritableChannel::of );
+    }
+
+    @Benchmark
+    public void unbuffered() throws FileSystemException, LuaException
+    {
+        write( Function.identity() );
+    }
+
+    private void write( Function<WritableByteChannel, WritableByteChannel> open ) throws FileSystemException, LuaException
+    {
+        FileSystemWrapper<WritableByteChannel> writer = fileSystem.openForWrite( "file.bin", false, open );
+        BinaryWritableHandle handle = BinaryWritableHandle.of( writer.get(), writer );
+        for( int written = 0; written < TOTAL; written += writeSize ) handle.write( chunk );
+        handle.doClose();
+    }
+}
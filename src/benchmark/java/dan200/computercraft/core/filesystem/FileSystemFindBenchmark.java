@@ -0,0 +1,107 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.filesystem;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link FileSystem#find(String)}, which matches a glob one path segment at a time, against the previous
+ * implementation, which walked every file below the first wildcard and matched the whole path against a regex.
+ *
+ * The tree contains 100,000 files: 10 top-level directories, each with 100 subdirectories of 100 files.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class FileSystemFindBenchmark
+{
+    private static final int DIRECTORIES = 10;
+    private static final int SUBDIRECTORIES = 100;
+    private static final int FILES = 100;
+
+    @Param( {
+        "*/*/file_42.lua", // A wildcard directory, then an exact name.
+        "dir_3/*/file_4*", // A prefix match inside one directory.
+        "*/sub_1*/*.lua", // Prunes most subdirectories.
+        "*/*/*", // Matches every file.
+    } )
+    public String glob;
+
+    private Path root;
+    private FileSystem fileSystem;
+
+    @Setup
+    public void setup() throws IOException, FileSystemException
+    {
+        root = Files.createTempDirectory( "cc-find" );
+        for( int d = 0; d < DIRECTORIES; d++ )
+        {
+            for( int s = 0; s < SUBDIRECTORIES; s++ )
+            {
+                Path dir = Files.createDirectories( root.resolve( "dir_" + d ).resolve( "sub_" + s ) );
+                for( int f = 0; f < FILES; f++ ) Files.createFile( dir.resolve( "file_" + f + ".lua" ) );
+            }
+        }
+
+        fileSystem = new FileSystem( "hdd", new FileMount( root.toFile(), Long.MAX_VALUE ) );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        fileSystem.close();
+        try( Stream<Path> paths = Files.walk( root ) )
+        {
+            paths.sorted( Comparator.reverseOrder() ).map( Path::toFile ).forEach( File::delete );
+        }
+    }
+
+    @Benchmark
+    public String[] segments() throws FileSystemException
+    {
+        return fileSystem.find( glob );
+    }
+
+    @Benchmark
+    public String[] regex() throws FileSystemException
+    {
+        // This is the implementation find used before matching by segment.
+        String wildPath = FileSystem.sanitizePath( glob, true );
+        int starIndex = wildPath.indexOf( '*' );
+        int prevDir = wildPath.substring( 0, starIndex ).lastIndexOf( '/' );
+        String startDir = prevDir == -1 ? "" : wildPath.substring( 0, prevDir );
+        if( !fileSystem.isDir( startDir ) ) return new String[0];
+
+        Pattern wildPattern = Pattern.compile( "^\\Q" + wildPath.replaceAll( "\\*", "\\\\E[^\\\\/]*\\\\Q" ) + "\\E$" );
+        List<String> matches = new ArrayList<>();
+        regexFindIn( startDir, matches, wildPattern );
+        return matches.toArray( new String[0] );
+    }
+
+    private void regexFindIn( String dir, List<String> matches, Pattern wildPattern ) throws FileSystemException
+    {
+        for( String entry : fileSystem.list( dir ) )
+        {
+            String entryPath = dir.isEmpty() ? entry : dir + "/" + entry;
+            if( wildPattern.matcher( entryPath ).matches() ) matches.add( entryPath );
+            if( fileSystem.isDir( entryPath ) ) regexFindIn( entryPath, matches, wildPattern );
+        }
+    }
+}
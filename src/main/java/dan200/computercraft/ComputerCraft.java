@@ -61,6 +61,8 @@ public final class ComputerCraft implements ModInitializer
     public static boolean commandRequireCreative = true;
 
     public static int computerThreads = 1;
+    public static boolean computerThreadWorkStealing = false;
+    public static boolean virtualThreadCoroutines = false;
     public static long maxMainGlobalTime = TimeUnit.MILLISECONDS.toNanos( 10 );
     public static long maxMainComputerTime = TimeUnit.MILLISECONDS.toNanos( 5 );
 
@@ -237,48 +237,68 @@ public final class FixedWidthFontRenderer
     public static void drawTerminalWithoutCursor( @Nonnull Matrix4f transform, @Nonnull VertexConsumer buffer, float x, float y,
                                                   @Nonnull Terminal terminal, boolean greyscale, float topMarginSize, float bottomMarginSize,
                                                   float leftMarginSize, float rightMarginSize )
+    {
+        for( int i = 0; i < terminal.getHeight(); i++ )
+        {
+            drawTerminalLineWithoutCursor( transform, buffer, x, y, terminal, i, greyscale, topMarginSize, bottomMarginSize, leftMarginSize, rightMarginSize );
+        }
+    }
+
+    /**
+     * Draw a single line of a terminal. The first and last lines also draw the top and bottom margins respectively.
+     *
+     * This allows renderers which cache a terminal's geometry to only redraw the lines which have changed.
+     *
+     * @see #drawTerminalWithoutCursor(Matrix4f, VertexConsumer, float, float, Terminal, boolean, float, float, float, float)
+     */
+    public static void drawTerminalLineWithoutCursor( @Nonnull Matrix4f transform, @Nonnull VertexConsumer buffer, float x, float y,
+                                                      @Nonnull Terminal terminal, int line, boolean greyscale, float topMarginSize,
+                                                      float bottomMarginSize, float leftMarginSize, float rightMarginSize )
     {
         Palette palette = terminal.getPalette();
         int height = terminal.getHeight();
 
         // Top and bottom margins
-        drawBackground( transform,
-            buffer,
-            x,
-            y - topMarginSize,
-            terminal.getBackgroundColourLine( 0 ),
-            palette,
-            greyscale,
-            leftMarginSize,
-            rightMarginSize,
-            topMarginSize );
-
-        drawBackground( transform,
-            buffer,
-            x,
-            y + height * FONT_HEIGHT,
-            terminal.getBackgroundColourLine( height - 1 ),
-            palette,
-            greyscale,
-            leftMarginSize,
-            rightMarginSize,
-            bottomMarginSize );
+        if( line == 0 )
+        {
+            drawBackground( transform,
+                buffer,
+                x,
+                y - topMarginSize,
+                terminal.getBackgroundColourLine( 0 ),
+                palette,
+                greyscale,
+                leftMarginSize,
+                rightMarginSize,
+                topMarginSize );
+        }
 
-        // The main text
-        for( int i = 0; i < height; i++ )
+        if( line == height - 1 )
         {
-            drawString( transform,
+            drawBackground( transform,
                 buffer,
                 x,
-                y + FixedWidthFontRenderer.FONT_HEIGHT * i,
-                terminal.getLine( i ),
-                terminal.getTextColourLine( i ),
-                terminal.getBackgroundColourLine( i ),
+                y + height * FONT_HEIGHT,
+                terminal.getBackgroundColourLine( height - 1 ),
                 palette,
                 greyscale,
                 leftMarginSize,
-                rightMarginSize, FULL_BRIGHT_LIGHTMAP );
+                rightMarginSize,
+                bottomMarginSize );
         }
+
+        // The main text
+        drawString( transform,
+            buffer,
+            x,
+            y + FixedWidthFontRenderer.FONT_HEIGHT * line,
+            terminal.getLine( line ),
+            terminal.getTextColourLine( line ),
+            terminal.getBackgroundColourLine( line ),
+            palette,
+            greyscale,
+            leftMarginSize,
+            rightMarginSize, FULL_BRIGHT_LIGHTMAP );
     }
 
     public static void drawCursor( @Nonnull Matrix4f transform, @Nonnull VertexConsumer buffer, float x, float y, @Nonnull Terminal terminal,
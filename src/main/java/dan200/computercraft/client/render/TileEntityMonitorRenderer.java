@@ -25,11 +25,13 @@ import net.minecraft.client.render.block.entity.BlockEntityRendererFactory;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.util.math.*;
 import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL31;
 
 import javax.annotation.Nonnull;
 import java.nio.ByteBuffer;
+import java.util.BitSet;
 
 import static dan200.computercraft.client.gui.FixedWidthFontRenderer.*;
 import static net.minecraft.client.util.GlAllocationUtils.allocateByteBuffer;
@@ -42,6 +44,7 @@ public class TileEntityMonitorRenderer implements BlockEntityRenderer<TileMonito
     private static final float MARGIN = (float) (TileMonitor.RENDER_MARGIN * 1.1);
     private static final Matrix4f IDENTITY = AffineTransformation.identity()
         .getMatrix();
+    static final int TBO_CELL_SIZE = 3;
     private static ByteBuffer tboContents;
 
     public TileEntityMonitorRenderer( BlockEntityRendererFactory.Context context )
@@ -143,11 +146,7 @@ public class TileEntityMonitorRenderer implements BlockEntityRenderer<TileMonito
         Terminal terminal = monitor.getTerminal();
 
         MonitorRenderer renderType = MonitorRenderer.current();
-        boolean redraw = monitor.pollTerminalChanged();
-        if( monitor.createBuffer( renderType ) )
-        {
-            redraw = true;
-        }
+        boolean redraw = monitor.createBuffer( renderType );
 
         switch( renderType )
         {
@@ -157,30 +156,40 @@ public class TileEntityMonitorRenderer implements BlockEntityRenderer<TileMonito
                 int width = terminal.getWidth(), height = terminal.getHeight();
                 int pixelWidth = width * FONT_WIDTH, pixelHeight = height * FONT_HEIGHT;
 
-                if( redraw )
+                // The palette is passed as a uniform, so only changes to the text itself need to be uploaded.
+                BitSet dirty = monitor.pollDirtyRows( false );
+                if( redraw ) dirty.set( 0, height );
+
+                if( !dirty.isEmpty() )
                 {
-                    int size = width * height * 3;
-                    if( tboContents == null || tboContents.capacity() < size )
+                    GlStateManager._glBindBuffer( GL31.GL_TEXTURE_BUFFER, monitor.tboBuffer );
+
+                    // Resizing the terminal marks every row as dirty, so we only need to reallocate the buffer when
+                    // redrawing everything. Otherwise just upload each run of changed rows.
+                    int rowSize = width * TBO_CELL_SIZE;
+                    if( dirty.cardinality() == height )
                     {
-                        tboContents = allocateByteBuffer( size );
+                        ByteBuffer monitorBuffer = getTboContents( rowSize * height );
+                        writeTboRows( monitorBuffer, terminal, 0, height );
+                        monitorBuffer.flip();
+                        GlStateManager._glBufferData( GL31.GL_TEXTURE_BUFFER, monitorBuffer, GL20.GL_STATIC_DRAW );
                     }
-
-                    ByteBuffer monitorBuffer = tboContents;
-                    monitorBuffer.clear();
-                    for( int y = 0; y < height; y++ )
+                    else
                     {
-                        TextBuffer text = terminal.getLine( y ), textColour = terminal.getTextColourLine( y ), background = terminal.getBackgroundColourLine( y );
-                        for( int x = 0; x < width; x++ )
+                        int start = dirty.nextSetBit( 0 );
+                        while( start >= 0 )
                         {
-                            monitorBuffer.put( (byte) (text.charAt( x ) & 0xFF) );
-                            monitorBuffer.put( (byte) getColour( textColour.charAt( x ), Colour.WHITE ) );
-                            monitorBuffer.put( (byte) getColour( background.charAt( x ), Colour.BLACK ) );
+                            int end = dirty.nextClearBit( start );
+
+                            ByteBuffer monitorBuffer = getTboContents( rowSize * (end - start) );
+                            writeTboRows( monitorBuffer, terminal, start, end );
+                            monitorBuffer.flip();
+                            GL15.glBufferSubData( GL31.GL_TEXTURE_BUFFER, (long) start * rowSize, monitorBuffer );
+
+                            start = dirty.nextSetBit( end );
                         }
                     }
-                    monitorBuffer.flip();
 
-                    GlStateManager._glBindBuffer( GL31.GL_TEXTURE_BUFFER, monitor.tboBuffer );
-                    GlStateManager._glBufferData( GL31.GL_TEXTURE_BUFFER, monitorBuffer, GL20.GL_STATIC_DRAW );
                     GlStateManager._glBindBuffer( GL31.GL_TEXTURE_BUFFER, 0 );
                 }
 
@@ -204,32 +213,84 @@ public class TileEntityMonitorRenderer implements BlockEntityRenderer<TileMonito
             }
 
             case VBO:
-                VertexBuffer vbo = monitor.buffer;
-                if( redraw )
+            {
+                int height = terminal.getHeight();
+
+                // The palette is baked into the vertex colours, so a palette change requires redrawing every row.
+                BitSet dirty = monitor.pollDirtyRows( true );
+                if( monitor.resizeBuffers( height ) || redraw ) dirty.set( 0, height );
+
+                VertexBuffer[] vbos = monitor.buffers;
+                if( !dirty.isEmpty() )
                 {
                     Tessellator tessellator = Tessellator.getInstance();
                     BufferBuilder builder = tessellator.getBuffer();
-                    builder.begin( RenderTypes.TERMINAL_WITHOUT_DEPTH.getDrawMode(), RenderTypes.TERMINAL_WITHOUT_DEPTH.getVertexFormat() );
-                    FixedWidthFontRenderer.drawTerminalWithoutCursor( IDENTITY,
-                        builder,
-                        0,
-                        0,
-                        terminal,
-                        !monitor.isColour(),
-                        yMargin,
-                        yMargin,
-                        xMargin,
-                        xMargin );
-
-                    builder.end();
-                    vbo.upload( builder );
+                    for( int y = dirty.nextSetBit( 0 ); y >= 0 && y < height; y = dirty.nextSetBit( y + 1 ) )
+                    {
+                        builder.begin( RenderTypes.TERMINAL_WITHOUT_DEPTH.getDrawMode(), RenderTypes.TERMINAL_WITHOUT_DEPTH.getVertexFormat() );
+                        FixedWidthFontRenderer.drawTerminalLineWithoutCursor( IDENTITY,
+                            builder,
+                            0,
+                            0,
+                            terminal,
+                            y,
+                            !monitor.isColour(),
+                            yMargin,
+                            yMargin,
+                            xMargin,
+                            xMargin );
+
+                        builder.end();
+                        vbos[y].upload( builder );
+                    }
                 }
 
                 renderer.getBuffer( RenderTypes.TERMINAL_WITHOUT_DEPTH );
 
                 RenderTypes.TERMINAL_WITHOUT_DEPTH.startDrawing();
-                vbo.setShader( matrix, RenderSystem.getProjectionMatrix(), RenderTypes.getTerminalShader() );
+                for( VertexBuffer vbo : vbos )
+                {
+                    vbo.setShader( matrix, RenderSystem.getProjectionMatrix(), RenderTypes.getTerminalShader() );
+                }
                 break;
+            }
+        }
+    }
+
+    private static ByteBuffer getTboContents( int size )
+    {
+        if( tboContents == null || tboContents.capacity() < size )
+        {
+            tboContents = allocateByteBuffer( size );
+        }
+
+        tboContents.clear();
+        return tboContents;
+    }
+
+    /**
+     * Write rows of a terminal in the format read by {@link MonitorTextureBufferShader}: {@link #TBO_CELL_SIZE} bytes
+     * per cell, holding the character and its text and background colours.
+     *
+     * This does not touch any OpenGL state, and so may be run (and benchmarked) without a GPU.
+     *
+     * @param buffer   The buffer to write to. This must have space for {@code (end - start) * width} cells.
+     * @param terminal The terminal to read from.
+     * @param start    The first row to write.
+     * @param end      The row to stop at (exclusive).
+     */
+    static void writeTboRows( ByteBuffer buffer, Terminal terminal, int start, int end )
+    {
+        int width = terminal.getWidth();
+        for( int y = start; y < end; y++ )
+        {
+            TextBuffer text = terminal.getLine( y ), textColour = terminal.getTextColourLine( y ), background = terminal.getBackgroundColourLine( y );
+            for( int x = 0; x < width; x++ )
+            {
+                buffer.put( (byte) (text.charAt( x ) & 0xFF) );
+                buffer.put( (byte) getColour( textColour.charAt( x ), Colour.WHITE ) );
+                buffer.put( (byte) getColour( background.charAt( x ), Colour.BLACK ) );
+            }
         }
     }
 
@@ -11,6 +11,7 @@ import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.api.lua.LuaFunction;
 import dan200.computercraft.core.apis.handles.BinaryReadableHandle;
 import dan200.computercraft.core.apis.handles.BinaryWritableHandle;
+import dan200.computercraft.core.apis.handles.BufferedWritableChannel;
 import dan200.computercraft.core.apis.handles.EncodedReadableHandle;
 import dan200.computercraft.core.apis.handles.EncodedWritableHandle;
 import dan200.computercraft.core.filesystem.FileSystem;
@@ -350,12 +351,12 @@ public class FSAPI implements ILuaAPI
                 case "wb":
                 {
                     // Open the file for binary writing, then create a wrapper around the writer
-                    FileSystemWrapper<WritableByteChannel> writer = fileSystem.openForWrite( path, false, Function.identity() );
+                    FileSystemWrapper<WritableByteChannel> writer = fileSystem.openForWrite( path, false, BufferedWritableChannel::of );
                     return new Object[] { BinaryWritableHandle.of( writer.get(), writer ) };
                 }
                 case "ab":
                     // Open the file for binary appending, then create a wrapper around the reader
-                    FileSystemWrapper<WritableByteChannel> writer = fileSystem.openForWrite( path, true, Function.identity() );
+                    FileSystemWrapper<WritableByteChannel> writer = fileSystem.openForWrite( path, true, BufferedWritableChannel::of );
                     return new Object[] { BinaryWritableHandle.of( writer.get(), writer ) };
                 default:
                     throw new LuaException( "Unsupported mode" );
@@ -13,8 +13,6 @@ import dan200.computercraft.api.lua.LuaFunction;
 import dan200.computercraft.core.apis.http.*;
 import dan200.computercraft.core.apis.http.request.HttpRequest;
 import dan200.computercraft.core.apis.http.websocket.Websocket;
-import io.netty.handler.codec.http.DefaultHttpHeaders;
-import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 
@@ -23,7 +21,6 @@ import java.net.URI;
 import java.util.Collections;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
 
 import static dan200.computercraft.core.apis.TableHelper.*;
 
@@ -81,7 +78,7 @@ public class HTTPAPI implements ILuaAPI
     {
         String address, postString, requestMethod;
         Map<?, ?> headerTable;
-        boolean binary, redirect;
+        boolean binary, redirect, stream;
 
         if( args.get( 0 ) instanceof Map )
         {
@@ -92,6 +89,7 @@ public class HTTPAPI implements ILuaAPI
             binary = optBooleanField( options, "binary", false );
             requestMethod = optStringField( options, "method", null );
             redirect = optBooleanField( options, "redirect", true );
+            stream = optBooleanField( options, "stream", false );
 
         }
         else
@@ -103,10 +101,9 @@ public class HTTPAPI implements ILuaAPI
             binary = args.optBoolean( 3, false );
             requestMethod = null;
             redirect = true;
+            stream = false;
         }
 
-        HttpHeaders headers = getHeaders( headerTable );
-
         HttpMethod httpMethod;
         if( requestMethod == null )
         {
@@ -123,8 +120,12 @@ public class HTTPAPI implements ILuaAPI
 
         try
         {
+            // Only check the URI here. Everything else (including converting the headers) is done off-thread.
             URI uri = HttpRequest.checkUri( address );
-            HttpRequest request = new HttpRequest( requests, apiEnvironment, address, postString, headers, binary, redirect );
+            HttpRequest request = new HttpRequest(
+                requests, apiEnvironment, address, postString, headerTable,
+                apiEnvironment.getComputerEnvironment().getUserAgent(), binary, redirect, stream
+            );
 
             // Make the request
             if( !request.queue( r -> r.request( uri, httpMethod ) ) )
@@ -159,20 +160,49 @@ public class HTTPAPI implements ILuaAPI
         }
     }
 
+    /**
+     * Open a websocket. This may either be called with a URL and optional table of headers, or with a single table
+     * containing the {@code url}, {@code headers} and {@code buffered} fields.
+     *
+     * If {@code buffered} is set, messages are stored on the websocket until read with {@code receive} or
+     * {@code receiveMany}, rather than being queued as {@code websocket_message} events.
+     *
+     * @param args The websocket's address and options.
+     * @return Whether the websocket is being opened, and an error message if not.
+     * @throws LuaException If websockets are disabled, or the arguments are invalid.
+     */
     @LuaFunction
-    public final Object[] websocket( String address, Optional<Map<?, ?>> headerTbl ) throws LuaException
+    public final Object[] websocket( IArguments args ) throws LuaException
     {
         if( !ComputerCraft.httpWebsocketEnabled )
         {
             throw new LuaException( "Websocket connections are disabled" );
         }
 
-        HttpHeaders headers = getHeaders( headerTbl.orElse( Collections.emptyMap() ) );
+        String address;
+        Map<?, ?> headerTable;
+        boolean buffered;
+
+        if( args.get( 0 ) instanceof Map )
+        {
+            Map<?, ?> options = args.getTable( 0 );
+            address = getStringField( options, "url" );
+            headerTable = optTableField( options, "headers", Collections.emptyMap() );
+            buffered = optBooleanField( options, "buffered", false );
+        }
+        else
+        {
+            address = args.getString( 0 );
+            headerTable = args.optTable( 1, Collections.emptyMap() );
+            buffered = false;
+        }
+
+        HttpHeaders headers = getHeaders( headerTable );
 
         try
         {
             URI uri = Websocket.checkUri( address );
-            if( !new Websocket( websockets, apiEnvironment, uri, address, headers ).queue( Websocket::connect ) )
+            if( !new Websocket( websockets, apiEnvironment, uri, address, headers, buffered ).queue( Websocket::connect ) )
             {
                 throw new LuaException( "Too many websockets already open" );
             }
@@ -188,27 +218,13 @@ public class HTTPAPI implements ILuaAPI
     @Nonnull
     private HttpHeaders getHeaders( @Nonnull Map<?, ?> headerTable ) throws LuaException
     {
-        HttpHeaders headers = new DefaultHttpHeaders();
-        for( Map.Entry<?, ?> entry : headerTable.entrySet() )
+        try
         {
-            Object value = entry.getValue();
-            if( entry.getKey() instanceof String && value instanceof String )
-            {
-                try
-                {
-                    headers.add( (String) entry.getKey(), value );
-                }
-                catch( IllegalArgumentException e )
-                {
-                    throw new LuaException( e.getMessage() );
-                }
-            }
+            return NetworkUtils.getHeaders( headerTable, apiEnvironment.getComputerEnvironment().getUserAgent() );
         }
-
-        if( !headers.contains( HttpHeaderNames.USER_AGENT ) )
+        catch( HTTPRequestException e )
         {
-            headers.set( HttpHeaderNames.USER_AGENT, apiEnvironment.getComputerEnvironment().getUserAgent() );
+            throw new LuaException( e.getMessage() );
         }
-        return headers;
     }
 }
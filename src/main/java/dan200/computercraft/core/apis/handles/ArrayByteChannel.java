@@ -20,10 +20,24 @@ public class ArrayByteChannel implements SeekableByteChannel
     private int position = 0;
 
     private final byte[] backing;
+    private final int length;
 
     public ArrayByteChannel( byte[] backing )
     {
+        this( backing, backing.length );
+    }
+
+    /**
+     * Create a channel over the start of an array.
+     *
+     * @param backing The array to read from.
+     * @param length  The number of bytes of this array which are readable. Anything after this is ignored.
+     */
+    public ArrayByteChannel( byte[] backing, int length )
+    {
+        if( length < 0 || length > backing.length ) throw new IllegalArgumentException( "Length out of bounds" );
         this.backing = backing;
+        this.length = length;
     }
 
     @Override
@@ -32,9 +46,9 @@ public class ArrayByteChannel implements SeekableByteChannel
         if( closed ) throw new ClosedChannelException();
         Objects.requireNonNull( destination, "destination" );
 
-        if( position >= backing.length ) return -1;
+        if( position >= length ) return -1;
 
-        int remaining = Math.min( backing.length - position, destination.remaining() );
+        int remaining = Math.min( length - position, destination.remaining() );
         destination.put( backing, position, remaining );
         position += remaining;
         return remaining;
@@ -70,7 +84,7 @@ public class ArrayByteChannel implements SeekableByteChannel
     public long size() throws ClosedChannelException
     {
         if( closed ) throw new ClosedChannelException();
-        return backing.length;
+        return length;
     }
 
     @Override
@@ -8,6 +8,7 @@ package dan200.computercraft.core.apis.handles;
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.api.lua.LuaFunction;
 import dan200.computercraft.core.filesystem.TrackingCloseable;
+import dan200.computercraft.core.lua.OwnedBytes;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -15,6 +16,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -77,14 +79,23 @@ public class BinaryReadableHandle extends HandleGeneric
                     return seekable.position() >= seekable.size() ? null : new Object[] { "" };
                 }
 
-                if( count <= BUFFER_SIZE )
+                // If we know how much of the file is left, read directly into an array of the right size.
+                if( seekable != null )
                 {
-                    ByteBuffer buffer = ByteBuffer.allocate( count );
+                    long remaining = seekable.size() - seekable.position();
+                    if( remaining > 0 )
+                    {
+                        byte[] bytes = readFully( (int) Math.min( count, remaining ) );
+                        return bytes == null ? null : new Object[] { OwnedBytes.of( bytes ) };
+                    }
+                }
 
-                    int read = reader.read( buffer );
+                if( count <= BUFFER_SIZE )
+                {
+                    byte[] bytes = new byte[count];
+                    int read = reader.read( ByteBuffer.wrap( bytes ) );
                     if( read < 0 ) return null;
-                    buffer.flip();
-                    return new Object[] { buffer };
+                    return new Object[] { OwnedBytes.of( read == count ? bytes : Arrays.copyOf( bytes, read ) ) };
                 }
                 else
                 {
@@ -123,7 +134,7 @@ public class BinaryReadableHandle extends HandleGeneric
                         System.arraycopy( part.array(), 0, bytes, pos, part.position() );
                         pos += part.position();
                     }
-                    return new Object[] { bytes };
+                    return new Object[] { OwnedBytes.of( bytes ) };
                 }
             }
             else
@@ -152,12 +163,33 @@ public class BinaryReadableHandle extends HandleGeneric
         checkOpen();
         try
         {
+            // If we know the size of the file, read directly into an array of that size. We only fall back to copying
+            // if the file has grown since.
+            byte[] initial = null;
+            if( seekable != null )
+            {
+                long remaining = seekable.size() - seekable.position();
+                if( remaining > 0 && remaining < Integer.MAX_VALUE )
+                {
+                    initial = readFully( (int) remaining );
+                    if( initial == null ) return null;
+
+                    single.clear();
+                    if( reader.read( single ) < 0 ) return new Object[] { OwnedBytes.of( initial ) };
+                }
+            }
+
             int expected = 32;
             if( seekable != null ) expected = Math.max( expected, (int) (seekable.size() - seekable.position()) );
             ByteArrayOutputStream stream = new ByteArrayOutputStream( expected );
+            if( initial != null )
+            {
+                stream.write( initial );
+                stream.write( single.get( 0 ) );
+            }
 
             ByteBuffer buf = ByteBuffer.allocate( 8192 );
-            boolean readAnything = false;
+            boolean readAnything = initial != null;
             while( true )
             {
                 buf.clear();
@@ -167,7 +199,7 @@ public class BinaryReadableHandle extends HandleGeneric
                 readAnything = true;
                 stream.write( buf.array(), 0, r );
             }
-            return readAnything ? new Object[] { stream.toByteArray() } : null;
+            return readAnything ? new Object[] { OwnedBytes.of( stream.toByteArray() ) } : null;
         }
         catch( IOException e )
         {
@@ -202,7 +234,7 @@ public class BinaryReadableHandle extends HandleGeneric
                     // Nothing else to read, and we saw no \n. Return the array. If we saw a \r, then add it
                     // back.
                     if( readRc ) stream.write( '\r' );
-                    return readAnything ? new Object[] { stream.toByteArray() } : null;
+                    return readAnything ? new Object[] { OwnedBytes.of( stream.toByteArray() ) } : null;
                 }
 
                 readAnything = true;
@@ -215,7 +247,7 @@ public class BinaryReadableHandle extends HandleGeneric
                         if( readRc ) stream.write( '\r' );
                         stream.write( chr );
                     }
-                    return new Object[] { stream.toByteArray() };
+                    return new Object[] { OwnedBytes.of( stream.toByteArray() ) };
                 }
                 else
                 {
@@ -235,6 +267,27 @@ public class BinaryReadableHandle extends HandleGeneric
         }
     }
 
+    /**
+     * Read up to {@code count} bytes into a new array, stopping early if we hit the end of the file.
+     *
+     * @param count The number of bytes to read.
+     * @return The bytes read, or {@code null} if we were already at the end of the file.
+     * @throws IOException If reading failed.
+     */
+    private byte[] readFully( int count ) throws IOException
+    {
+        byte[] bytes = new byte[count];
+        ByteBuffer buffer = ByteBuffer.wrap( bytes );
+        while( buffer.hasRemaining() )
+        {
+            if( reader.read( buffer ) < 0 ) break;
+        }
+
+        int read = buffer.position();
+        if( read == 0 && count > 0 ) return null;
+        return read == count ? bytes : Arrays.copyOf( bytes, read );
+    }
+
     public static class Seekable extends BinaryReadableHandle
     {
         Seekable( SeekableByteChannel seekable, TrackingCloseable closeable )
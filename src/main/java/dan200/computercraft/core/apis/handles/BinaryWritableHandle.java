@@ -96,6 +96,15 @@ public class BinaryWritableHandle extends HandleGeneric
     public final void flush() throws LuaException
     {
         checkOpen();
+        try
+        {
+            if( writer instanceof BufferedWritableChannel buffered ) buffered.flush();
+        }
+        catch( IOException e )
+        {
+            throw new LuaException( e.getMessage() );
+        }
+
         try
         {
             // Technically this is not needed
@@ -106,6 +115,12 @@ public class BinaryWritableHandle extends HandleGeneric
         }
     }
 
+    @Override
+    protected void flushBeforeClose() throws IOException
+    {
+        if( writer instanceof BufferedWritableChannel buffered ) buffered.flush();
+    }
+
     public static class Seekable extends BinaryWritableHandle
     {
         public Seekable( SeekableByteChannel seekable, TrackingCloseable closeable )
@@ -0,0 +1,163 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.handles;
+
+import javax.annotation.Nonnull;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A {@link WritableByteChannel} which buffers small writes, only passing them to the underlying channel once the
+ * buffer is full, or when it is flushed or closed.
+ *
+ * This is the binary equivalent of the {@link java.io.BufferedWriter} used by {@link EncodedWritableHandle}. Like that,
+ * errors from the underlying channel (such as running out of space) may not be reported until the buffer is flushed.
+ * {@link BinaryWritableHandle} flushes the buffer explicitly before closing, so such errors are still raised by
+ * {@code close()}.
+ */
+public class BufferedWritableChannel implements WritableByteChannel, Flushable
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    private final WritableByteChannel inner;
+    private final ByteBuffer buffer = ByteBuffer.allocate( BUFFER_SIZE );
+
+    BufferedWritableChannel( WritableByteChannel inner )
+    {
+        this.inner = inner;
+    }
+
+    /**
+     * Wrap a channel in a buffer. If the channel is seekable, the returned channel will be too.
+     *
+     * @param channel The channel to wrap.
+     * @return The buffered channel.
+     */
+    public static BufferedWritableChannel of( WritableByteChannel channel )
+    {
+        return channel instanceof SeekableByteChannel seekable ? new Seekable( seekable ) : new BufferedWritableChannel( channel );
+    }
+
+    @Override
+    public int write( @Nonnull ByteBuffer src ) throws IOException
+    {
+        if( !isOpen() ) throw new ClosedChannelException();
+
+        int length = src.remaining();
+        if( length > buffer.remaining() ) flush();
+
+        if( length >= buffer.capacity() )
+        {
+            // Large writes skip the buffer entirely.
+            while( src.hasRemaining() ) inner.write( src );
+        }
+        else
+        {
+            buffer.put( src );
+        }
+
+        return length;
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        if( buffer.position() == 0 ) return;
+
+        buffer.flip();
+        try
+        {
+            while( buffer.hasRemaining() ) inner.write( buffer );
+        }
+        finally
+        {
+            // Discard the buffer even if writing failed, so that we do not keep reporting the same error.
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Get the number of bytes which have been written, but not yet passed to the underlying channel.
+     *
+     * @return The number of buffered bytes.
+     */
+    int buffered()
+    {
+        return buffer.position();
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return inner.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if( !inner.isOpen() ) return;
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            inner.close();
+        }
+    }
+
+    private static class Seekable extends BufferedWritableChannel implements SeekableByteChannel
+    {
+        private final SeekableByteChannel inner;
+
+        Seekable( SeekableByteChannel inner )
+        {
+            super( inner );
+            this.inner = inner;
+        }
+
+        @Override
+        public int read( ByteBuffer dst ) throws ClosedChannelException
+        {
+            if( !isOpen() ) throw new ClosedChannelException();
+            throw new NonReadableChannelException();
+        }
+
+        @Override
+        public long position() throws IOException
+        {
+            return inner.position() + buffered();
+        }
+
+        @Override
+        public SeekableByteChannel position( long newPosition ) throws IOException
+        {
+            flush();
+            inner.position( newPosition );
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException
+        {
+            flush();
+            return inner.size();
+        }
+
+        @Override
+        public SeekableByteChannel truncate( long size ) throws IOException
+        {
+            flush();
+            inner.truncate( size );
+            return this;
+        }
+    }
+}
@@ -37,18 +37,39 @@ public abstract class HandleGeneric
         closeable = null;
     }
 
+    /**
+     * Write any data which has been buffered by this handle. This is called before the handle is closed from Lua, so
+     * that errors (such as running out of space) are reported to the caller rather than discarded.
+     *
+     * @throws IOException If the data could not be written.
+     */
+    protected void flushBeforeClose() throws IOException
+    {
+    }
+
     /**
      * Close this file, freeing any resources it uses.
      *
      * Once a file is closed it may no longer be read or written to.
      *
-     * @throws LuaException If the file has already been closed.
+     * @throws LuaException If the file has already been closed, or any remaining data could not be written.
      */
     @LuaFunction( "close" )
     public final void doClose() throws LuaException
     {
         checkOpen();
-        close();
+        try
+        {
+            flushBeforeClose();
+        }
+        catch( IOException e )
+        {
+            throw new LuaException( e.getMessage() );
+        }
+        finally
+        {
+            close();
+        }
     }
 
 
@@ -6,6 +6,7 @@
 package dan200.computercraft.core.apis.http;
 
 import dan200.computercraft.core.apis.IAPIEnvironment;
+import dan200.computercraft.core.tracking.TrackingField;
 
 import java.net.InetSocketAddress;
 import java.net.URI;
@@ -45,16 +46,19 @@ public class CheckUrl extends Resource<CheckUrl>
     {
         if( isClosed() ) return;
 
+        long start = System.nanoTime();
         try
         {
             boolean ssl = uri.getScheme().equalsIgnoreCase( "https" );
             InetSocketAddress netAddress = NetworkUtils.getAddress( uri, ssl );
             NetworkUtils.getOptions( uri.getHost(), netAddress );
+            environment.addTrackingChange( TrackingField.HTTP_RESOLVE_TIME, System.nanoTime() - start );
 
             if( tryClose() ) environment.queueEvent( EVENT, address, true );
         }
         catch( HTTPRequestException e )
         {
+            environment.addTrackingChange( TrackingField.HTTP_RESOLVE_TIME, System.nanoTime() - start );
             if( tryClose() ) environment.queueEvent( EVENT, address, false, e.getMessage() );
         }
     }
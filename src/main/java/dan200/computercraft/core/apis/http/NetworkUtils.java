@@ -5,6 +5,8 @@
  */
 package dan200.computercraft.core.apis.http;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.core.apis.http.options.Action;
 import dan200.computercraft.core.apis.http.options.AddressRule;
@@ -16,6 +18,9 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.websocketx.WebSocketHandshakeException;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
@@ -30,6 +35,8 @@ import javax.net.ssl.TrustManagerFactory;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.security.KeyStore;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -114,9 +121,41 @@ public final class NetworkUtils
         }
     }
 
+    /**
+     * Resolved addresses, keyed by {@code host:port}. This avoids repeated lookups (and allocation) for programs which
+     * poll the same server frequently.
+     */
+    private static final Cache<String, InetSocketAddress> addressCache = CacheBuilder.newBuilder()
+        .maximumSize( 1024 )
+        .expireAfterWrite( 30, TimeUnit.SECONDS )
+        .build();
+
+    /**
+     * Hosts which could not be resolved. These are kept for a shorter time than {@link #addressCache}, so that
+     * temporary DNS failures do not linger.
+     */
+    private static final Cache<String, Boolean> unknownHostCache = CacheBuilder.newBuilder()
+        .maximumSize( 1024 )
+        .expireAfterWrite( 5, TimeUnit.SECONDS )
+        .build();
+
+    /**
+     * The result of applying {@link ComputerCraft#httpRules} to a host and its resolved address.
+     *
+     * This depends only on the host, the <em>resolved</em> address and the rules, so is always the same as evaluating
+     * the rules again. However, the rules may be changed at any point, so each entry also records which rules it was
+     * built from, and entries built from an older list are ignored.
+     */
+    private static final Cache<String, CachedOptions> optionsCache = CacheBuilder.newBuilder()
+        .maximumSize( 1024 )
+        .build();
+
     public static void reloadConfig()
     {
         SHAPING_HANDLER.configure( ComputerCraft.httpUploadBandwidth, ComputerCraft.httpDownloadBandwidth );
+        addressCache.invalidateAll();
+        unknownHostCache.invalidateAll();
+        optionsCache.invalidateAll();
     }
 
     public static void reset()
@@ -153,8 +192,20 @@ public final class NetworkUtils
     public static InetSocketAddress getAddress( String host, int port, boolean ssl ) throws HTTPRequestException
     {
         if( port < 0 ) port = ssl ? 443 : 80;
-        InetSocketAddress socketAddress = new InetSocketAddress( host, port );
-        if( socketAddress.isUnresolved() ) throw new HTTPRequestException( "Unknown host" );
+
+        String key = host + ":" + port;
+        InetSocketAddress socketAddress = addressCache.getIfPresent( key );
+        if( socketAddress != null ) return socketAddress;
+        if( unknownHostCache.getIfPresent( key ) != null ) throw new HTTPRequestException( "Unknown host" );
+
+        socketAddress = new InetSocketAddress( host, port );
+        if( socketAddress.isUnresolved() )
+        {
+            unknownHostCache.put( key, true );
+            throw new HTTPRequestException( "Unknown host" );
+        }
+
+        addressCache.put( key, socketAddress );
         return socketAddress;
     }
 
@@ -168,11 +219,57 @@ public final class NetworkUtils
      */
     public static Options getOptions( String host, InetSocketAddress address ) throws HTTPRequestException
     {
-        Options options = AddressRule.apply( ComputerCraft.httpRules, host, address );
+        List<AddressRule> rules = ComputerCraft.httpRules;
+
+        String key = host + "/" + address.getAddress().getHostAddress() + ":" + address.getPort();
+        CachedOptions cached = optionsCache.getIfPresent( key );
+        Options options;
+        if( cached != null && cached.rules == rules )
+        {
+            options = cached.options;
+        }
+        else
+        {
+            options = AddressRule.apply( rules, host, address );
+            optionsCache.put( key, new CachedOptions( rules, options ) );
+        }
+
         if( options.action == Action.DENY ) throw new HTTPRequestException( "Domain not permitted" );
         return options;
     }
 
+    /**
+     * Convert a Lua table of headers into {@link HttpHeaders}, adding a {@code User-Agent} if one is not given.
+     *
+     * @param headerTable The table of headers. Entries which are not strings are ignored.
+     * @param userAgent   The default user agent.
+     * @return The converted headers.
+     * @throws HTTPRequestException If any of the headers are invalid.
+     */
+    @Nonnull
+    public static HttpHeaders getHeaders( @Nonnull Map<?, ?> headerTable, @Nonnull String userAgent ) throws HTTPRequestException
+    {
+        HttpHeaders headers = new DefaultHttpHeaders();
+        for( Map.Entry<?, ?> entry : headerTable.entrySet() )
+        {
+            Object value = entry.getValue();
+            if( entry.getKey() instanceof String && value instanceof String )
+            {
+                try
+                {
+                    headers.add( (String) entry.getKey(), value );
+                }
+                catch( IllegalArgumentException e )
+                {
+                    throw new HTTPRequestException( e.getMessage() );
+                }
+            }
+        }
+
+        if( !headers.contains( HttpHeaderNames.USER_AGENT ) ) headers.set( HttpHeaderNames.USER_AGENT, userAgent );
+        return headers;
+    }
+
     /**
      * Read a {@link ByteBuf} into a byte array.
      *
@@ -210,4 +307,16 @@ public final class NetworkUtils
             return "Could not connect";
         }
     }
+
+    private static final class CachedOptions
+    {
+        final List<AddressRule> rules;
+        final Options options;
+
+        CachedOptions( List<AddressRule> rules, Options options )
+        {
+            this.rules = rules;
+            this.options = options;
+        }
+    }
 }
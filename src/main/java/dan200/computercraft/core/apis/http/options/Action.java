@@ -12,7 +12,7 @@ public enum Action
     ALLOW,
     DENY;
 
-    private final PartialOptions partial = new PartialOptions( this, null, null, null, null );
+    private final PartialOptions partial = new PartialOptions( this, null, null, null, null, null );
 
     @Nonnull
     public PartialOptions toPartial()
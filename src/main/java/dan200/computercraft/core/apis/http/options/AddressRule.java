@@ -27,6 +27,7 @@ public final class AddressRule
     public static final long MAX_UPLOAD = 4 * 1024 * 1024;
     public static final int TIMEOUT = 30_000;
     public static final int WEBSOCKET_MESSAGE = 128 * 1024;
+    public static final int MAX_IDLE_CONNECTIONS = 4;
 
     private final AddressPredicate predicate;
     private final Integer port;
@@ -40,6 +40,9 @@ public class AddressRuleConfig
 
             config.setComment( "max_websocket_message", "The maximum size (in bytes) that a computer can send or receive in one websocket packet." );
             config.set( "max_websocket_message", AddressRule.WEBSOCKET_MESSAGE );
+
+            config.setComment( "max_idle_connections", "The maximum number of idle connections to a single server which are kept open to be reused by later requests. Set to 0 to disable connection reuse." );
+            config.set( "max_idle_connections", AddressRule.MAX_IDLE_CONNECTIONS );
         }
 
         return config;
@@ -55,6 +58,7 @@ public class AddressRuleConfig
             && check( builder, "max_upload", Number.class )
             && check( builder, "max_download", Number.class )
             && check( builder, "websocket_message", Number.class )
+            && check( builder, "max_idle_connections", Number.class )
             && AddressRule.parse( hostObj, port, PartialOptions.DEFAULT ) != null;
     }
 
@@ -70,13 +74,15 @@ public class AddressRuleConfig
         Long maxUpload = get( builder, "max_upload", Number.class ).map( Number::longValue ).orElse( null );
         Long maxDownload = get( builder, "max_download", Number.class ).map( Number::longValue ).orElse( null );
         Integer websocketMessage = get( builder, "websocket_message", Number.class ).map( Number::intValue ).orElse( null );
+        Integer maxIdleConnections = get( builder, "max_idle_connections", Number.class ).map( Number::intValue ).orElse( null );
 
         PartialOptions options = new PartialOptions(
             action,
             maxUpload,
             maxDownload,
             timeout,
-            websocketMessage
+            websocketMessage,
+            maxIdleConnections
         );
 
         return AddressRule.parse( hostObj, port, options );
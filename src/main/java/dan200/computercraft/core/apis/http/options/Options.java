@@ -18,13 +18,15 @@ public final class Options
     public final long maxDownload;
     public final int timeout;
     public final int websocketMessage;
+    public final int maxIdleConnections;
 
-    Options( @Nonnull Action action, long maxUpload, long maxDownload, int timeout, int websocketMessage )
+    Options( @Nonnull Action action, long maxUpload, long maxDownload, int timeout, int websocketMessage, int maxIdleConnections )
     {
         this.action = action;
         this.maxUpload = maxUpload;
         this.maxDownload = maxDownload;
         this.timeout = timeout;
         this.websocketMessage = websocketMessage;
+        this.maxIdleConnections = maxIdleConnections;
     }
 }
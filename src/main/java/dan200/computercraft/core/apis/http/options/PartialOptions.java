@@ -9,23 +9,25 @@ import javax.annotation.Nonnull;
 
 public final class PartialOptions
 {
-    static final PartialOptions DEFAULT = new PartialOptions( null, null, null, null, null );
+    static final PartialOptions DEFAULT = new PartialOptions( null, null, null, null, null, null );
 
     Action action;
     Long maxUpload;
     Long maxDownload;
     Integer timeout;
     Integer websocketMessage;
+    Integer maxIdleConnections;
 
     Options options;
 
-    PartialOptions( Action action, Long maxUpload, Long maxDownload, Integer timeout, Integer websocketMessage )
+    PartialOptions( Action action, Long maxUpload, Long maxDownload, Integer timeout, Integer websocketMessage, Integer maxIdleConnections )
     {
         this.action = action;
         this.maxUpload = maxUpload;
         this.maxDownload = maxDownload;
         this.timeout = timeout;
         this.websocketMessage = websocketMessage;
+        this.maxIdleConnections = maxIdleConnections;
     }
 
     @Nonnull
@@ -38,7 +40,8 @@ public final class PartialOptions
             maxUpload == null ? AddressRule.MAX_UPLOAD : maxUpload,
             maxDownload == null ? AddressRule.MAX_DOWNLOAD : maxDownload,
             timeout == null ? AddressRule.TIMEOUT : timeout,
-            websocketMessage == null ? AddressRule.WEBSOCKET_MESSAGE : websocketMessage
+            websocketMessage == null ? AddressRule.WEBSOCKET_MESSAGE : websocketMessage,
+            maxIdleConnections == null ? AddressRule.MAX_IDLE_CONNECTIONS : maxIdleConnections
         );
     }
 
@@ -49,10 +52,11 @@ public final class PartialOptions
         if( maxDownload == null && other.maxDownload != null ) maxDownload = other.maxDownload;
         if( timeout == null && other.timeout != null ) timeout = other.timeout;
         if( websocketMessage == null && other.websocketMessage != null ) websocketMessage = other.websocketMessage;
+        if( maxIdleConnections == null && other.maxIdleConnections != null ) maxIdleConnections = other.maxIdleConnections;
     }
 
     PartialOptions copy()
     {
-        return new PartialOptions( action, maxUpload, maxDownload, timeout, websocketMessage );
+        return new PartialOptions( action, maxUpload, maxDownload, timeout, websocketMessage, maxIdleConnections );
     }
 }
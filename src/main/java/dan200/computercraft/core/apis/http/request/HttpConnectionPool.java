@@ -0,0 +1,199 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.http.request;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of idle HTTP/1.1 connections, allowing subsequent requests to the same server to skip the TCP and TLS
+ * handshakes.
+ *
+ * Connections are keyed by the <em>resolved</em> address (as well as the host name, used for SNI and certificate
+ * validation), so a connection is only ever reused for a request which has already been checked against the address
+ * rules. As the read timeout is baked into the pipeline, it also forms part of the key.
+ */
+final class HttpConnectionPool
+{
+    /**
+     * The name of the per-request handler within the channel's pipeline.
+     */
+    static final String HANDLER = "handler";
+
+    /**
+     * The name of the {@link io.netty.handler.timeout.ReadTimeoutHandler} within the channel's pipeline.
+     */
+    static final String TIMEOUT = "timeout";
+
+    /**
+     * How long a connection may sit idle in the pool before we close it, in milliseconds. This is deliberately
+     * shorter than most servers' own keep-alive timeout, to reduce the chance of picking up a connection the server
+     * is about to close.
+     */
+    private static final long IDLE_TIMEOUT = 10_000;
+
+    private static final Map<Key, Deque<Channel>> idle = new HashMap<>();
+
+    private HttpConnectionPool()
+    {
+    }
+
+    /**
+     * Take an idle connection from the pool.
+     *
+     * @param key The server to connect to.
+     * @return An open connection, or {@code null} if none are available.
+     */
+    @Nullable
+    static Channel acquire( @Nonnull Key key )
+    {
+        synchronized( idle )
+        {
+            Deque<Channel> channels = idle.get( key );
+            if( channels == null ) return null;
+
+            Channel channel;
+            while( (channel = channels.pollFirst()) != null )
+            {
+                if( channel.isActive() ) break;
+            }
+
+            if( channels.isEmpty() ) idle.remove( key );
+            return channel;
+        }
+    }
+
+    /**
+     * Return a connection to the pool once a request has finished with it. This replaces the request's handler in the
+     * pipeline, and so must be called from the channel's event loop.
+     *
+     * @param key     The server this channel is connected to.
+     * @param channel The channel to release.
+     * @param maxIdle The maximum number of idle connections to keep for this server, as set by the address rules.
+     */
+    static void release( @Nonnull Key key, @Nonnull Channel channel, int maxIdle )
+    {
+        if( !channel.isActive() ) return;
+
+        channel.pipeline().replace( HANDLER, HANDLER, IdleHandler.INSTANCE );
+
+        List<Channel> evicted = null;
+        synchronized( idle )
+        {
+            Deque<Channel> channels = idle.computeIfAbsent( key, k -> new ArrayDeque<>() );
+            channels.addFirst( channel );
+
+            // The limit may have been lowered since other connections were released, so evict as many as needed.
+            while( channels.size() > maxIdle )
+            {
+                if( evicted == null ) evicted = new ArrayList<>();
+                evicted.add( channels.pollLast() );
+            }
+            if( channels.isEmpty() ) idle.remove( key );
+        }
+
+        if( evicted != null )
+        {
+            for( Channel other : evicted ) other.close();
+            if( evicted.contains( channel ) ) return;
+        }
+
+        // Close the channel if it is still sitting in the pool once the timeout has expired.
+        channel.eventLoop().schedule( () -> {
+            if( remove( key, channel ) ) channel.close();
+        }, IDLE_TIMEOUT, TimeUnit.MILLISECONDS );
+    }
+
+    private static boolean remove( Key key, Channel channel )
+    {
+        synchronized( idle )
+        {
+            Deque<Channel> channels = idle.get( key );
+            if( channels == null || !channels.remove( channel ) ) return false;
+            if( channels.isEmpty() ) idle.remove( key );
+            return true;
+        }
+    }
+
+    /**
+     * Identifies the server a connection is made to.
+     */
+    static final class Key
+    {
+        private final InetSocketAddress address;
+        private final String host;
+        private final boolean ssl;
+        private final int timeout;
+
+        Key( InetSocketAddress address, String host, boolean ssl, int timeout )
+        {
+            this.address = address;
+            this.host = host;
+            this.ssl = ssl;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if( this == o ) return true;
+            if( !(o instanceof Key other) ) return false;
+            return ssl == other.ssl && timeout == other.timeout && address.equals( other.address ) && host.equals( other.host );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash( address, host, ssl, timeout );
+        }
+    }
+
+    /**
+     * Sits at the end of an idle connection's pipeline. As we are not expecting anything from the server, any data
+     * or errors (such as the read timeout firing) just cause the connection to be closed.
+     */
+    @ChannelHandler.Sharable
+    private static final class IdleHandler extends ChannelInboundHandlerAdapter
+    {
+        static final IdleHandler INSTANCE = new IdleHandler();
+
+        @Override
+        public void channelRead( ChannelHandlerContext ctx, Object msg )
+        {
+            ReferenceCountUtil.release( msg );
+            ctx.close();
+        }
+
+        @Override
+        public void channelInactive( ChannelHandlerContext ctx )
+        {
+            remove( ctx.channel() );
+        }
+
+        @Override
+        public void exceptionCaught( ChannelHandlerContext ctx, Throwable cause )
+        {
+            ctx.close();
+        }
+    }
+
+    private static void remove( Channel channel )
+    {
+        synchronized( idle )
+        {
+            idle.values().removeIf( channels -> channels.remove( channel ) && channels.isEmpty() );
+        }
+    }
+}
@@ -16,6 +16,7 @@ import dan200.computercraft.core.tracking.TrackingField;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
@@ -25,6 +26,7 @@ import io.netty.handler.codec.http.*;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 
+import java.lang.ref.WeakReference;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -52,23 +54,57 @@ public class HttpRequest extends Resource<HttpRequest>
     private final IAPIEnvironment environment;
 
     private final String address;
-    private final ByteBuf postBuffer;
-    private final HttpHeaders headers;
     private final boolean binary;
+    private final boolean stream;
+
+    /**
+     * The body of a streamed response, once the headers have been received. This is weak, so the request is closed if
+     * the computer drops its handle without reading the whole body.
+     */
+    private volatile WeakReference<HttpStreamReader> streamReader;
+
+    /*
+     * The raw arguments from Lua. These are converted into the request body and headers by prepare(), which runs on
+     * the network executor rather than the computer thread.
+     */
+    private String postText;
+    private Map<?, ?> headerTable;
+    private final String userAgent;
+
+    private ByteBuf postBuffer;
+    private HttpHeaders headers;
 
     final AtomicInteger redirects;
 
-    public HttpRequest( ResourceGroup<HttpRequest> limiter, IAPIEnvironment environment, String address, String postText, HttpHeaders headers, boolean binary, boolean followRedirects )
+    public HttpRequest( ResourceGroup<HttpRequest> limiter, IAPIEnvironment environment, String address, String postText, Map<?, ?> headerTable, String userAgent, boolean binary, boolean followRedirects, boolean stream )
     {
         super( limiter );
         this.environment = environment;
         this.address = address;
+        this.postText = postText;
+        this.headerTable = headerTable;
+        this.userAgent = userAgent;
+        this.binary = binary;
+        this.stream = stream;
+        redirects = new AtomicInteger( followRedirects ? MAX_REDIRECTS : 0 );
+    }
+
+    /**
+     * Convert the request's body and headers. This is only done once, before the first request is made (redirects
+     * reuse the same headers and body).
+     *
+     * @throws HTTPRequestException If the headers are invalid.
+     */
+    private void prepare() throws HTTPRequestException
+    {
+        if( headers != null ) return;
+
+        long start = System.nanoTime();
+
+        HttpHeaders headers = NetworkUtils.getHeaders( headerTable, userAgent );
         postBuffer = postText != null
             ? Unpooled.wrappedBuffer( postText.getBytes( StandardCharsets.UTF_8 ) )
             : Unpooled.buffer( 0 );
-        this.headers = headers;
-        this.binary = binary;
-        redirects = new AtomicInteger( followRedirects ? MAX_REDIRECTS : 0 );
 
         if( postText != null )
         {
@@ -82,6 +118,12 @@ public class HttpRequest extends Resource<HttpRequest>
                 headers.set( HttpHeaderNames.CONTENT_LENGTH, postBuffer.readableBytes() );
             }
         }
+
+        this.headers = headers;
+        postText = null;
+        headerTable = null;
+
+        environment.addTrackingChange( TrackingField.HTTP_VALIDATE_TIME, System.nanoTime() - start );
     }
 
     public IAPIEnvironment environment()
@@ -89,6 +131,11 @@ public class HttpRequest extends Resource<HttpRequest>
         return environment;
     }
 
+    String address()
+    {
+        return address;
+    }
+
     public static URI checkUri( String address ) throws HTTPRequestException
     {
         URI url;
@@ -121,21 +168,54 @@ public class HttpRequest extends Resource<HttpRequest>
     public void request( URI uri, HttpMethod method )
     {
         if( isClosed() ) return;
-        executorFuture = NetworkUtils.EXECUTOR.submit( () -> doRequest( uri, method ) );
+        executorFuture = NetworkUtils.EXECUTOR.submit( () -> doRequest( uri, method, false ) );
         checkClosed();
     }
 
-    private void doRequest( URI uri, HttpMethod method )
+    /**
+     * Retry this request on a new connection, after a pooled connection was closed before we got a response.
+     *
+     * This should only be used if the request was never sent, or is idempotent (see {@link #isIdempotent(HttpMethod)}),
+     * as the server may have acted on it before closing the connection.
+     *
+     * @param uri    The URI to request.
+     * @param method The method to use.
+     */
+    void retry( URI uri, HttpMethod method )
+    {
+        if( isClosed() ) return;
+        executorFuture = NetworkUtils.EXECUTOR.submit( () -> doRequest( uri, method, true ) );
+        checkClosed();
+    }
+
+    /**
+     * Whether a request may be safely sent again after the connection was closed without a response, as described in
+     * RFC 7230, section 6.3.1. We only consider methods which are idempotent and have no side effects; PUT and DELETE
+     * are idempotent, but we cannot know whether another request has changed the resource in between.
+     *
+     * @param method The request's method.
+     * @return Whether this request may be retried automatically.
+     */
+    static boolean isIdempotent( HttpMethod method )
+    {
+        return method.equals( HttpMethod.GET ) || method.equals( HttpMethod.HEAD ) || method.equals( HttpMethod.OPTIONS );
+    }
+
+    private void doRequest( URI uri, HttpMethod method, boolean retry )
     {
         // If we're cancelled, abort.
         if( isClosed() ) return;
 
         try
         {
+            prepare();
+
+            long resolveStart = System.nanoTime();
             boolean ssl = uri.getScheme().equalsIgnoreCase( "https" );
             InetSocketAddress socketAddress = NetworkUtils.getAddress( uri, ssl );
             Options options = NetworkUtils.getOptions( uri.getHost(), socketAddress );
             SslContext sslContext = ssl ? NetworkUtils.getSslContext() : null;
+            environment.addTrackingChange( TrackingField.HTTP_RESOLVE_TIME, System.nanoTime() - resolveStart );
 
             // getAddress may have a slight delay, so let's perform another cancellation check.
             if( isClosed() ) return;
@@ -147,11 +227,46 @@ public class HttpRequest extends Resource<HttpRequest>
                 return;
             }
 
-            // Add request size to the tracker before opening the connection
-            environment.addTrackingChange( TrackingField.HTTP_REQUESTS, 1 );
-            environment.addTrackingChange( TrackingField.HTTP_UPLOAD, requestBody );
+            // Add request size to the tracker before opening the connection. Retries were already counted when the
+            // request was first made.
+            if( !retry )
+            {
+                environment.addTrackingChange( TrackingField.HTTP_REQUESTS, 1 );
+                environment.addTrackingChange( TrackingField.HTTP_UPLOAD, requestBody );
+            }
+
+            // Try to reuse an existing connection to this server. Retries always use a fresh connection, so we cannot
+            // end up retrying indefinitely.
+            HttpConnectionPool.Key key = new HttpConnectionPool.Key( socketAddress, uri.getHost(), ssl, options.timeout );
+            Channel pooled = retry ? null : HttpConnectionPool.acquire( key );
+            if( pooled != null )
+            {
+                environment.addTrackingChange( TrackingField.HTTP_REUSED, 1 );
 
-            HttpRequestHandler handler = currentRequest = new HttpRequestHandler( this, uri, method, options );
+                HttpRequestHandler handler = currentRequest = new HttpRequestHandler( this, uri, method, options, key, true );
+                connectFuture = pooled.newSucceededFuture();
+                pooled.eventLoop().execute( () -> {
+                    // The connection may have been closed since we took it from the pool.
+                    if( !pooled.isActive() )
+                    {
+                        retry( uri, method );
+                        return;
+                    }
+
+                    ChannelPipeline p = pooled.pipeline();
+                    if( options.timeout > 0 )
+                    {
+                        p.replace( HttpConnectionPool.TIMEOUT, HttpConnectionPool.TIMEOUT, new ReadTimeoutHandler( options.timeout, TimeUnit.MILLISECONDS ) );
+                    }
+                    p.replace( HttpConnectionPool.HANDLER, HttpConnectionPool.HANDLER, handler );
+                } );
+
+                checkClosed();
+                return;
+            }
+
+            HttpRequestHandler handler = currentRequest = new HttpRequestHandler( this, uri, method, options, key, false );
+            long connectStart = System.nanoTime();
             connectFuture = new Bootstrap()
                 .group( NetworkUtils.LOOP_GROUP )
                 .channelFactory( NioSocketChannel::new )
@@ -175,19 +290,20 @@ public class HttpRequest extends Resource<HttpRequest>
 
                         if( options.timeout > 0 )
                         {
-                            p.addLast( new ReadTimeoutHandler( options.timeout, TimeUnit.MILLISECONDS ) );
+                            p.addLast( HttpConnectionPool.TIMEOUT, new ReadTimeoutHandler( options.timeout, TimeUnit.MILLISECONDS ) );
                         }
 
                         p.addLast(
                             new HttpClientCodec(),
-                            new HttpContentDecompressor(),
-                            handler
+                            new HttpContentDecompressor()
                         );
+                        p.addLast( HttpConnectionPool.HANDLER, handler );
                     }
                 } )
                 .remoteAddress( socketAddress )
                 .connect()
                 .addListener( c -> {
+                    environment.addTrackingChange( TrackingField.HTTP_CONNECT_TIME, System.nanoTime() - connectStart );
                     if( !c.isSuccess() ) failure( NetworkUtils.toFriendlyError( c.cause() ) );
                 } );
 
@@ -207,6 +323,15 @@ public class HttpRequest extends Resource<HttpRequest>
 
     void failure( String message )
     {
+        // If we've already returned a streamed response, the error is reported when reading the body instead.
+        HttpStreamReader reader = streamReader();
+        if( reader != null )
+        {
+            reader.finish( message );
+            close();
+            return;
+        }
+
         if( tryClose() ) environment.queueEvent( FAILURE_EVENT, address, message );
     }
 
@@ -220,13 +345,65 @@ public class HttpRequest extends Resource<HttpRequest>
         if( tryClose() ) environment.queueEvent( SUCCESS_EVENT, address, object );
     }
 
+    /**
+     * Queue the response to a streamed request, once its headers have been received. Unlike {@link #success}, this does
+     * not close the request, as the body is still being read.
+     *
+     * @param object The response handle.
+     * @param reader The reader for the response's body.
+     * @param status The response's status.
+     */
+    void streamStarted( HttpResponseHandle object, HttpStreamReader reader, HttpResponseStatus status )
+    {
+        if( isClosed() ) return;
+        streamReader = createOwnerReference( reader );
+
+        if( status.code() >= 200 && status.code() < 400 )
+        {
+            environment.queueEvent( SUCCESS_EVENT, address, object );
+        }
+        else
+        {
+            environment.queueEvent( FAILURE_EVENT, address, status.reasonPhrase(), object );
+        }
+
+        checkClosed();
+    }
+
+    /**
+     * Get the body of a streamed response.
+     *
+     * @return The response's body, or {@code null} if the headers have not been received yet, or the computer has
+     * dropped the response.
+     */
+    HttpStreamReader streamReader()
+    {
+        WeakReference<HttpStreamReader> reference = streamReader;
+        return reference == null ? null : reference.get();
+    }
+
+    /**
+     * Mark a streamed request as complete, once the whole body has been received.
+     */
+    void streamFinished()
+    {
+        tryClose();
+    }
+
     @Override
     protected void dispose()
     {
         super.dispose();
 
+        // Make sure anything waiting on the body is woken up. This does nothing if the body was read successfully.
+        HttpStreamReader reader = streamReader();
+        if( reader != null ) reader.finish( "Connection closed" );
+
         executorFuture = closeFuture( executorFuture );
-        connectFuture = closeChannel( connectFuture );
+
+        // If the connection has been returned to the pool, we must not close it.
+        HttpRequestHandler handler = currentRequest;
+        connectFuture = handler != null && handler.isReleased() ? null : closeChannel( connectFuture );
         currentRequest = closeCloseable( currentRequest );
     }
 
@@ -255,4 +432,9 @@ public class HttpRequest extends Resource<HttpRequest>
     {
         return binary;
     }
+
+    public boolean isStream()
+    {
+        return stream;
+    }
 }
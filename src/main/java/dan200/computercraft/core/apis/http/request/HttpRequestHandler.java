@@ -15,7 +15,6 @@ import dan200.computercraft.core.apis.http.NetworkUtils;
 import dan200.computercraft.core.apis.http.options.Options;
 import dan200.computercraft.core.tracking.TrackingField;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
@@ -25,6 +24,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,12 +32,19 @@ import static dan200.computercraft.core.apis.http.request.HttpRequest.getHeaderS
 
 public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpObject> implements Closeable
 {
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
     /**
-     * Same as {@link io.netty.handler.codec.MessageAggregator}.
+     * The initial size of the response buffer when the server does not send a {@code Content-Length}.
      */
-    private static final int DEFAULT_MAX_COMPOSITE_BUFFER_COMPONENTS = 1024;
+    private static final int INITIAL_BODY_SIZE = 8192;
 
-    private static final byte[] EMPTY_BYTES = new byte[0];
+    /**
+     * The most we will allocate up-front based on the server's {@code Content-Length}. Beyond this, we grow the buffer
+     * (by doubling) as data actually arrives, so a server cannot make us hold on to a large array without sending the
+     * data to fill it.
+     */
+    private static final int MAX_PREALLOCATE = 64 * 1024;
 
     private final HttpRequest request;
     private boolean closed = false;
@@ -46,22 +53,51 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
     private final HttpMethod method;
     private final Options options;
 
+    private final HttpConnectionPool.Key key;
+    private final boolean reused;
+    private boolean keepAlive;
+    private boolean receivedAny;
+    private volatile boolean released;
+
     private Charset responseCharset;
     private final HttpHeaders responseHeaders = new DefaultHttpHeaders();
     private HttpResponseStatus responseStatus;
-    private CompositeByteBuf responseBody;
 
-    HttpRequestHandler( HttpRequest request, URI uri, HttpMethod method, Options options )
+    /**
+     * The response body. Each chunk is copied here as it arrives (and the Netty buffer released), so that we only ever
+     * hold one copy of the body, which is then handed to the response handle as-is.
+     */
+    private byte[] responseBody;
+    private int responseLength;
+
+    HttpRequestHandler( HttpRequest request, URI uri, HttpMethod method, Options options, HttpConnectionPool.Key key, boolean reused )
     {
         this.request = request;
 
         this.uri = uri;
         this.method = method;
         this.options = options;
+
+        this.key = key;
+        this.reused = reused;
+    }
+
+    @Override
+    public void handlerAdded( ChannelHandlerContext ctx ) throws Exception
+    {
+        // If we're being added to a pooled connection, then channelActive will never fire, so send the request now.
+        if( reused && ctx.channel().isActive() ) sendRequest( ctx );
+        super.handlerAdded( ctx );
     }
 
     @Override
     public void channelActive( ChannelHandlerContext ctx ) throws Exception
+    {
+        sendRequest( ctx );
+        super.channelActive( ctx );
+    }
+
+    private void sendRequest( ChannelHandlerContext ctx )
     {
         if( request.checkClosed() ) return;
 
@@ -81,27 +117,52 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
             request.headers().set( HttpHeaderNames.ACCEPT_CHARSET, "UTF-8" );
         }
         request.headers().set( HttpHeaderNames.HOST, uri.getPort() < 0 ? uri.getHost() : uri.getHost() + ":" + uri.getPort() );
-        request.headers().set( HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE );
+        keepAlive = HttpUtil.isKeepAlive( request );
 
         ctx.channel().writeAndFlush( request );
-
-        super.channelActive( ctx );
     }
 
     @Override
     public void channelInactive( ChannelHandlerContext ctx ) throws Exception
     {
-        if( !closed ) request.failure( "Could not connect" );
+        if( !closed )
+        {
+            closed = true;
+            if( reused && !receivedAny && HttpRequest.isIdempotent( method ) )
+            {
+                // The server closed this pooled connection before we got a response. It most likely timed out just
+                // as we picked it up, so try again with a new connection. Non-idempotent requests may already have
+                // been acted on, so are reported as failures instead.
+                request.retry( uri, method );
+            }
+            else
+            {
+                request.failure( "Could not connect" );
+            }
+        }
         super.channelInactive( ctx );
     }
 
+    /**
+     * Whether this handler has returned its connection to the pool. In this case, the connection should not be closed
+     * when the request is disposed.
+     *
+     * @return Whether the connection has been released.
+     */
+    boolean isReleased()
+    {
+        return released;
+    }
+
     @Override
     public void channelRead0( ChannelHandlerContext ctx, HttpObject message )
     {
         if( closed || request.checkClosed() ) return;
+        receivedAny = true;
 
         if( message instanceof HttpResponse response )
         {
+            keepAlive &= HttpUtil.isKeepAlive( response );
 
             if( request.redirects.get() > 0 )
             {
@@ -134,21 +195,35 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
             responseCharset = HttpUtil.getCharset( response, StandardCharsets.UTF_8 );
             responseStatus = response.status();
             responseHeaders.add( response.headers() );
+
+            if( request.isStream() )
+            {
+                // Return the response as soon as we have the headers, and pass the body on to the reader as it arrives.
+                HttpStreamReader reader = new HttpStreamReader( request, ctx.channel(), options );
+                HttpResponseHandle stream = new HttpResponseHandle( reader, responseStatus.code(), responseStatus.reasonPhrase(), getHeaders() );
+                request.streamStarted( stream, reader, responseStatus );
+            }
+            else
+            {
+                // HEAD requests and 1xx, 204 and 304 responses never have a body, even if they give a Content-Length.
+                long length = hasBody( response.status() ) ? getContentLength( response.headers() ) : 0;
+                if( length > 0 )
+                {
+                    long limit = options.maxDownload == 0 ? MAX_PREALLOCATE : Math.min( options.maxDownload, MAX_PREALLOCATE );
+                    responseBody = new byte[(int) Math.min( length, limit )];
+                }
+            }
         }
 
         if( message instanceof HttpContent content )
         {
 
-            if( responseBody == null )
-            {
-                responseBody = ctx.alloc().compositeBuffer( DEFAULT_MAX_COMPOSITE_BUFFER_COMPONENTS );
-            }
-
             ByteBuf partial = content.content();
             if( partial.isReadable() )
             {
                 // If we've read more than we're allowed to handle, abort as soon as possible.
-                if( options.maxDownload != 0 && responseBody.readableBytes() + partial.readableBytes() > options.maxDownload )
+                int partialLength = partial.readableBytes();
+                if( options.maxDownload != 0 && (long) responseLength + partialLength > options.maxDownload )
                 {
                     closed = true;
                     ctx.close();
@@ -157,25 +232,66 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
                     return;
                 }
 
-                responseBody.addComponent( true, partial.retain() );
+                if( request.isStream() )
+                {
+                    HttpStreamReader reader = request.streamReader();
+                    if( reader != null ) reader.offer( partial );
+                }
+                else
+                {
+                    ensureCapacity( responseLength + partialLength );
+                    partial.getBytes( partial.readerIndex(), responseBody, responseLength, partialLength );
+                }
+                responseLength += partialLength;
             }
 
-            if( message instanceof LastHttpContent last )
+            if( message instanceof LastHttpContent && request.isStream() )
+            {
+                // The response has already been returned, so trailing headers are not visible to the computer.
+                HttpStreamReader reader = request.streamReader();
+                if( reader != null ) reader.finish( null );
+
+                request.environment().addTrackingChange( TrackingField.HTTP_DOWNLOAD, getHeaderSize( responseHeaders ) + responseLength );
+                releaseConnection( ctx );
+                request.streamFinished();
+            }
+            else if( message instanceof LastHttpContent last )
             {
                 responseHeaders.add( last.trailingHeaders() );
 
                 // Set the content length, if not already given.
                 if( responseHeaders.contains( HttpHeaderNames.CONTENT_LENGTH ) )
                 {
-                    responseHeaders.set( HttpHeaderNames.CONTENT_LENGTH, responseBody.readableBytes() );
+                    responseHeaders.set( HttpHeaderNames.CONTENT_LENGTH, responseLength );
                 }
 
-                ctx.close();
+                releaseConnection( ctx );
                 sendResponse();
             }
         }
     }
 
+    /**
+     * Return the connection to the pool once the response has been received, or close it if it cannot be reused.
+     *
+     * @param ctx The channel's context.
+     */
+    private void releaseConnection( ChannelHandlerContext ctx )
+    {
+        if( keepAlive && options.maxIdleConnections > 0 )
+        {
+            // Mark ourselves as closed before returning the connection to the pool, so we ignore any events
+            // from the channel.
+            closed = true;
+            released = true;
+            HttpConnectionPool.release( key, ctx.channel(), options.maxIdleConnections );
+        }
+        else
+        {
+            ctx.close();
+        }
+    }
+
     @Override
     public void exceptionCaught( ChannelHandlerContext ctx, Throwable cause )
     {
@@ -185,24 +301,17 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
 
     private void sendResponse()
     {
-        // Read the ByteBuf into a channel.
-        CompositeByteBuf body = responseBody;
-        byte[] bytes = body == null ? EMPTY_BYTES : NetworkUtils.toBytes( body );
+        byte[] body = responseBody == null ? EMPTY_BYTES : responseBody;
+        int length = responseLength;
 
-        // Decode the headers
         HttpResponseStatus status = responseStatus;
-        Map<String, String> headers = new HashMap<>();
-        for( Map.Entry<String, String> header : responseHeaders )
-        {
-            String existing = headers.get( header.getKey() );
-            headers.put( header.getKey(), existing == null ? header.getValue() : existing + "," + header.getValue() );
-        }
+        Map<String, String> headers = getHeaders();
 
         // Fire off a stats event
-        request.environment().addTrackingChange( TrackingField.HTTP_DOWNLOAD, getHeaderSize( responseHeaders ) + bytes.length );
+        request.environment().addTrackingChange( TrackingField.HTTP_DOWNLOAD, getHeaderSize( responseHeaders ) + length );
 
         // Prepare to queue an event
-        ArrayByteChannel contents = new ArrayByteChannel( bytes );
+        ArrayByteChannel contents = new ArrayByteChannel( body, length );
         HandleGeneric reader = request.isBinary()
             ? BinaryReadableHandle.of( contents )
             : new EncodedReadableHandle( EncodedReadableHandle.open( contents, responseCharset ) );
@@ -218,6 +327,63 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
         }
     }
 
+    /**
+     * Decode the response's headers into a map for Lua, joining repeated headers with a comma.
+     *
+     * @return The decoded headers.
+     */
+    private Map<String, String> getHeaders()
+    {
+        Map<String, String> headers = new HashMap<>();
+        for( Map.Entry<String, String> header : responseHeaders )
+        {
+            String existing = headers.get( header.getKey() );
+            headers.put( header.getKey(), existing == null ? header.getValue() : existing + "," + header.getValue() );
+        }
+        return headers;
+    }
+
+    /**
+     * Whether a response to this request may contain a body, as described in RFC 7230, section 3.3.3.
+     *
+     * @param status The response's status.
+     * @return Whether the response may have a body.
+     */
+    private boolean hasBody( HttpResponseStatus status )
+    {
+        int code = status.code();
+        return !method.equals( HttpMethod.HEAD ) && code >= 200 && code != 204 && code != 304;
+    }
+
+    private static long getContentLength( HttpHeaders headers )
+    {
+        String length = headers.get( HttpHeaderNames.CONTENT_LENGTH );
+        if( length == null ) return -1;
+
+        try
+        {
+            return Long.parseLong( length.trim() );
+        }
+        catch( NumberFormatException e )
+        {
+            return -1;
+        }
+    }
+
+    private void ensureCapacity( int length )
+    {
+        if( responseBody == null )
+        {
+            responseBody = new byte[Math.max( length, INITIAL_BODY_SIZE )];
+        }
+        else if( length > responseBody.length )
+        {
+            int size = (int) Math.min( Math.max( (long) responseBody.length * 2, length ), Integer.MAX_VALUE - 8 );
+            if( options.maxDownload != 0 ) size = (int) Math.max( Math.min( size, options.maxDownload ), length );
+            responseBody = Arrays.copyOf( responseBody, size );
+        }
+    }
+
     /**
      * Determine the redirect from this response.
      *
@@ -247,10 +413,6 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
     public void close()
     {
         closed = true;
-        if( responseBody != null )
-        {
-            responseBody.release();
-            responseBody = null;
-        }
+        responseBody = null;
     }
 }
@@ -20,7 +20,7 @@ import java.util.Map;
 /**
  * A http response. This provides the same methods as a {@link EncodedReadableHandle file} (or
  * {@link BinaryReadableHandle binary file} if the request used binary mode), though provides several request specific
- * methods.
+ * methods. Streamed responses instead provide the methods of {@link HttpStreamReader}.
  *
  * @cc.module http.Response
  * @see HTTPAPI#request(IArguments)  On how to make a http request.
@@ -33,6 +33,16 @@ public class HttpResponseHandle implements ObjectSource
     private final Map<String, String> responseHeaders;
 
     public HttpResponseHandle( @Nonnull HandleGeneric reader, int responseCode, String responseStatus, @Nonnull Map<String, String> responseHeaders )
+    {
+        this( (Object) reader, responseCode, responseStatus, responseHeaders );
+    }
+
+    HttpResponseHandle( @Nonnull HttpStreamReader reader, int responseCode, String responseStatus, @Nonnull Map<String, String> responseHeaders )
+    {
+        this( (Object) reader, responseCode, responseStatus, responseHeaders );
+    }
+
+    private HttpResponseHandle( @Nonnull Object reader, int responseCode, String responseStatus, @Nonnull Map<String, String> responseHeaders )
     {
         this.reader = reader;
         this.responseCode = responseCode;
@@ -0,0 +1,436 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.http.request;
+
+import dan200.computercraft.api.lua.ILuaCallback;
+import dan200.computercraft.api.lua.LuaException;
+import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.api.lua.MethodResult;
+import dan200.computercraft.core.apis.http.options.Options;
+import dan200.computercraft.core.lua.OwnedBytes;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The body of a HTTP response which was requested with the {@code stream} option.
+ *
+ * Rather than waiting for the whole body before queuing {@code http_success}, the response is returned as soon as the
+ * headers arrive, and the body is read as it is received. Chunks from the server are kept in a bounded buffer: once
+ * more than {@link #MAX_BUFFERED} bytes are waiting, we stop reading from the server until some have been consumed,
+ * so a large download only ever holds a fixed amount of memory.
+ *
+ * Each of the read methods returns immediately if enough data is available, and otherwise waits for more to arrive.
+ * An {@code http_data} event (with the request's URL) is queued to wake up the waiting computer. Streamed responses
+ * are always read as binary, regardless of the {@code binary} option.
+ *
+ * @cc.module http.Response
+ */
+public class HttpStreamReader
+{
+    static final String DATA_EVENT = "http_data";
+
+    /**
+     * The number of bytes we buffer before we stop reading from the socket. Netty may already have decoded a little
+     * more by the time reading stops, so this is a soft limit.
+     */
+    private static final int MAX_BUFFERED = 256 * 1024;
+
+    private static final Object[] END = new Object[0];
+
+    private final HttpRequest request;
+    private final Channel channel;
+    private final Options options;
+
+    /*
+     * All of the following are guarded by chunks.
+     */
+    private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+    private int offset;
+    private int buffered;
+    private boolean paused;
+    private boolean finished;
+    private String error;
+
+    /**
+     * Whether an {@link #DATA_EVENT} has been queued since the buffer was last checked. If the event is dropped (for
+     * instance, because the computer's event queue is full), the next read attempt clears this, and the next chunk
+     * queues another one.
+     */
+    private boolean wakeupPending;
+
+    private volatile boolean closed;
+
+    HttpStreamReader( HttpRequest request, Channel channel, Options options )
+    {
+        this.request = request;
+        this.channel = channel;
+        this.options = options;
+    }
+
+    /**
+     * Add a chunk of the body to the buffer. This is called from the channel's event loop.
+     *
+     * @param data The data to add. This is copied, and so may be released afterwards.
+     */
+    void offer( ByteBuf data )
+    {
+        byte[] bytes = new byte[data.readableBytes()];
+        data.getBytes( data.readerIndex(), bytes );
+
+        boolean wakeup;
+        synchronized( chunks )
+        {
+            if( closed || finished ) return;
+
+            chunks.add( bytes );
+            buffered += bytes.length;
+
+            if( !paused && buffered >= MAX_BUFFERED )
+            {
+                paused = true;
+                setReading( false );
+            }
+
+            wakeup = !wakeupPending;
+            wakeupPending = true;
+        }
+
+        if( wakeup ) queueWakeup();
+    }
+
+    /**
+     * Mark the body as complete, either because all of it has been received, or because the request failed.
+     *
+     * @param error The error which caused the request to fail, or {@code null} if the body was received successfully.
+     */
+    void finish( @Nullable String error )
+    {
+        boolean wakeup;
+        synchronized( chunks )
+        {
+            if( finished ) return;
+            finished = true;
+            this.error = error;
+
+            // Make sure the connection is readable again, so it can be returned to the pool.
+            if( paused )
+            {
+                paused = false;
+                setReading( true );
+            }
+
+            wakeup = !wakeupPending;
+            wakeupPending = true;
+        }
+
+        if( wakeup && !closed ) queueWakeup();
+    }
+
+    private void queueWakeup()
+    {
+        request.environment().queueEvent( DATA_EVENT, request.address() );
+    }
+
+    /**
+     * Start or stop reading from the server. While we are not reading, the read timeout is disabled, as it is the
+     * computer (rather than the server) which is holding things up.
+     *
+     * @param reading Whether to read from the server.
+     */
+    private void setReading( boolean reading )
+    {
+        Runnable task = () -> {
+            ChannelPipeline pipeline = channel.pipeline();
+            if( options.timeout > 0 && pipeline.get( HttpConnectionPool.TIMEOUT ) != null )
+            {
+                pipeline.replace( HttpConnectionPool.TIMEOUT, HttpConnectionPool.TIMEOUT, reading
+                    ? new ReadTimeoutHandler( options.timeout, TimeUnit.MILLISECONDS )
+                    : new ChannelInboundHandlerAdapter() );
+            }
+            channel.config().setAutoRead( reading );
+        };
+
+        if( channel.eventLoop().inEventLoop() )
+        {
+            task.run();
+            return;
+        }
+
+        try
+        {
+            channel.eventLoop().execute( task );
+        }
+        catch( RejectedExecutionException ignored )
+        {
+            // The event loop has shut down, and so this connection has been closed anyway.
+        }
+    }
+
+    /**
+     * Read a number of bytes from the response, waiting for more data to arrive if none is available.
+     *
+     * Unlike a file handle, this returns as soon as <em>any</em> data is available, so may return fewer bytes than
+     * requested, even if the end of the response has not been reached.
+     *
+     * @param countArg The maximum number of bytes to read. When absent, a single byte will be read <em>as a
+     *                 number</em>.
+     * @return The read bytes.
+     * @throws LuaException When trying to read a negative number of bytes.
+     * @throws LuaException If the response has been closed.
+     * @cc.treturn [1] nil If we are at the end of the response.
+     * @cc.treturn [2] number The value of the byte read. This is returned when the {@code count} is absent.
+     * @cc.treturn [3] string The bytes read as a string. This is returned when the {@code count} is given.
+     * @cc.treturn [4] nil If the request failed while reading the body.
+     * @cc.treturn string The reason the request failed.
+     */
+    @LuaFunction
+    public final MethodResult read( Optional<Integer> countArg ) throws LuaException
+    {
+        checkOpen();
+        if( countArg.isPresent() && countArg.get() < 0 ) throw new LuaException( "Cannot read a negative number of bytes" );
+
+        return await( () -> {
+            synchronized( chunks )
+            {
+                if( buffered == 0 ) return finished ? end() : null;
+                if( !countArg.isPresent() ) return new Object[] { take( 1 )[0] & 0xFF };
+                return new Object[] { OwnedBytes.of( take( Math.min( countArg.get(), buffered ) ) ) };
+            }
+        } );
+    }
+
+    /**
+     * Read a line from the response, waiting for the rest of the line to arrive if needed.
+     *
+     * @param withTrailingArg Whether to include the newline characters with the returned string. Defaults to
+     *                        {@code false}.
+     * @return The read line.
+     * @throws LuaException If the response has been closed.
+     * @cc.treturn [1] string The read line.
+     * @cc.treturn [2] nil If we are at the end of the response.
+     * @cc.treturn [3] nil If the request failed while reading the body.
+     * @cc.treturn string The reason the request failed.
+     */
+    @LuaFunction
+    public final MethodResult readLine( Optional<Boolean> withTrailingArg ) throws LuaException
+    {
+        checkOpen();
+        boolean withTrailing = withTrailingArg.orElse( false );
+
+        return await( () -> {
+            synchronized( chunks )
+            {
+                if( buffered == 0 ) return finished ? end() : null;
+
+                int newline = indexOfNewline();
+                if( newline < 0 )
+                {
+                    // Wait for the rest of the line, unless it will never arrive: either the response has finished, or
+                    // the line is so long that it has filled the buffer.
+                    if( !finished && !paused ) return null;
+                    return new Object[] { OwnedBytes.of( take( buffered ) ) };
+                }
+
+                byte[] line = take( newline + 1 );
+                if( withTrailing ) return new Object[] { OwnedBytes.of( line ) };
+
+                int length = line.length - 1;
+                if( length > 0 && line[length - 1] == '\r' ) length--;
+                byte[] trimmed = new byte[length];
+                System.arraycopy( line, 0, trimmed, 0, length );
+                return new Object[] { OwnedBytes.of( trimmed ) };
+            }
+        } );
+    }
+
+    /**
+     * Read the remainder of the response, waiting for all of it to arrive.
+     *
+     * @return The rest of the response.
+     * @throws LuaException If the response has been closed.
+     * @cc.treturn [1] string The remaining contents of the response.
+     * @cc.treturn [2] nil If we are at the end of the response.
+     * @cc.treturn [3] nil If the request failed while reading the body.
+     * @cc.treturn string The reason the request failed.
+     */
+    @LuaFunction
+    public final MethodResult readAll() throws LuaException
+    {
+        checkOpen();
+
+        // We cannot leave the data in the buffer while waiting, as reading stops once it is full. Instead, move it into
+        // a separate buffer. This is still limited by the request's max_download.
+        ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        boolean[] readAnything = new boolean[1];
+        return await( () -> {
+            synchronized( chunks )
+            {
+                if( buffered > 0 )
+                {
+                    readAnything[0] = true;
+                    contents.writeBytes( take( buffered ) );
+                }
+
+                if( !finished ) return null;
+                if( error != null ) return end();
+                return readAnything[0] ? new Object[] { OwnedBytes.of( contents.toByteArray() ) } : END;
+            }
+        } );
+    }
+
+    /**
+     * Close this response, cancelling the rest of the request. Once closed, it may no longer be read from.
+     *
+     * @throws LuaException If the response has already been closed.
+     */
+    @LuaFunction( "close" )
+    public final void doClose() throws LuaException
+    {
+        checkOpen();
+        closed = true;
+        synchronized( chunks )
+        {
+            chunks.clear();
+            buffered = 0;
+        }
+        request.close();
+    }
+
+    private void checkOpen() throws LuaException
+    {
+        if( closed ) throw new LuaException( "attempt to use a closed file" );
+    }
+
+    private Object[] end()
+    {
+        return error == null ? END : new Object[] { null, error };
+    }
+
+    /**
+     * Find the offset of the first {@code \n} in the buffer.
+     *
+     * @return The offset of the newline, or {@code -1} if there is none.
+     */
+    private int indexOfNewline()
+    {
+        int position = 0;
+        int start = offset;
+        for( byte[] chunk : chunks )
+        {
+            for( int i = start; i < chunk.length; i++ )
+            {
+                if( chunk[i] == '\n' ) return position + i - start;
+            }
+
+            position += chunk.length - start;
+            start = 0;
+        }
+        return -1;
+    }
+
+    /**
+     * Remove bytes from the start of the buffer, resuming reading from the server if enough space has been freed.
+     *
+     * @param count The number of bytes to take. This must be no more than {@link #buffered}.
+     * @return The bytes taken.
+     */
+    private byte[] take( int count )
+    {
+        byte[] result = new byte[count];
+        int position = 0;
+        while( position < count )
+        {
+            byte[] chunk = chunks.peek();
+            int length = Math.min( chunk.length - offset, count - position );
+            System.arraycopy( chunk, offset, result, position, length );
+            position += length;
+            offset += length;
+
+            if( offset == chunk.length )
+            {
+                chunks.poll();
+                offset = 0;
+            }
+        }
+
+        buffered -= count;
+        if( paused && buffered <= MAX_BUFFERED / 2 )
+        {
+            paused = false;
+            setReading( true );
+        }
+
+        return result;
+    }
+
+    /**
+     * Attempt to read from the buffer, waiting for more data if the attempt could not be satisfied yet.
+     *
+     * @param attempt The read to perform.
+     * @return The result of the read, or a callback which retries it once more data has arrived.
+     */
+    private MethodResult await( Attempt attempt )
+    {
+        Object[] result = tryRead( attempt );
+        return result != null ? MethodResult.of( result ) : new WaitCallback( attempt ).pull;
+    }
+
+    @Nullable
+    private Object[] tryRead( Attempt attempt )
+    {
+        synchronized( chunks )
+        {
+            wakeupPending = false;
+            return attempt.read();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Attempt
+    {
+        /**
+         * Attempt to read from the buffer. This is called while holding the buffer's lock.
+         *
+         * @return The values to return to Lua, or {@code null} if we must wait for more data.
+         */
+        @Nullable
+        Object[] read();
+    }
+
+    private final class WaitCallback implements ILuaCallback
+    {
+        final MethodResult pull = MethodResult.pullEvent( null, this );
+        private final Attempt attempt;
+
+        WaitCallback( Attempt attempt )
+        {
+            this.attempt = attempt;
+        }
+
+        @Nonnull
+        @Override
+        public MethodResult resume( Object[] event )
+        {
+            // We check the buffer on every event, rather than just http_data: that event may have been dropped if the
+            // event queue was full.
+            if( closed ) return MethodResult.of();
+
+            Object[] result = tryRead( attempt );
+            return result != null ? MethodResult.of( result ) : pull;
+        }
+    }
+}
@@ -52,6 +52,12 @@ public class Websocket extends Resource<Websocket>
     static final String CLOSE_EVENT = "websocket_closed";
     static final String MESSAGE_EVENT = "websocket_message";
 
+    /**
+     * Queued for buffered websockets when a message is added to an empty receive buffer, to wake up any pending
+     * {@link WebsocketHandle#receive}.
+     */
+    static final String RECEIVE_EVENT = "websocket_receive";
+
     private Future<?> executorFuture;
     private ChannelFuture connectFuture;
     private WeakReference<WebsocketHandle> websocketHandle;
@@ -60,14 +66,16 @@ public class Websocket extends Resource<Websocket>
     private final URI uri;
     private final String address;
     private final HttpHeaders headers;
+    private final boolean buffered;
 
-    public Websocket( ResourceGroup<Websocket> limiter, IAPIEnvironment environment, URI uri, String address, HttpHeaders headers )
+    public Websocket( ResourceGroup<Websocket> limiter, IAPIEnvironment environment, URI uri, String address, HttpHeaders headers, boolean buffered )
     {
         super( limiter );
         this.environment = environment;
         this.uri = uri;
         this.address = address;
         this.headers = headers;
+        this.buffered = buffered;
     }
 
     public static URI checkUri( String address ) throws HTTPRequestException
@@ -189,13 +197,28 @@ public class Websocket extends Resource<Websocket>
     {
         if( isClosed() ) return;
 
-        WebsocketHandle handle = new WebsocketHandle( this, options, channel );
+        WebsocketHandle handle = new WebsocketHandle( this, options, channel, buffered );
         environment().queueEvent( SUCCESS_EVENT, address, handle );
         websocketHandle = createOwnerReference( handle );
 
         checkClosed();
     }
 
+    /**
+     * Pass a message from the server to this websocket's handle.
+     *
+     * @param message The message's contents.
+     * @param binary  Whether this is a binary message.
+     * @return Whether the handle buffered this message. If not, it should be queued as an event.
+     * @see WebsocketHandle#offer(Object, boolean)
+     */
+    boolean offer( Object message, boolean binary )
+    {
+        WeakReference<WebsocketHandle> websocketHandleRef = websocketHandle;
+        WebsocketHandle websocketHandle = websocketHandleRef == null ? null : websocketHandleRef.get();
+        return websocketHandle != null && websocketHandle.offer( message, binary );
+    }
+
     void failure( String message )
     {
         if( tryClose() ) environment.queueEvent( FAILURE_EVENT, address, message );
@@ -10,45 +10,101 @@ import dan200.computercraft.api.lua.*;
 import dan200.computercraft.core.apis.http.options.Options;
 import dan200.computercraft.core.tracking.TrackingField;
 import dan200.computercraft.shared.util.StringUtil;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 import static dan200.computercraft.api.lua.LuaValues.checkFinite;
 import static dan200.computercraft.core.apis.IAPIEnvironment.TIMER_EVENT;
 import static dan200.computercraft.core.apis.http.websocket.Websocket.CLOSE_EVENT;
 import static dan200.computercraft.core.apis.http.websocket.Websocket.MESSAGE_EVENT;
+import static dan200.computercraft.core.apis.http.websocket.Websocket.RECEIVE_EVENT;
 
 /**
  * A websocket, which can be used to send an receive messages with a web server.
  *
+ * By default, each message from the server is queued as a {@code websocket_message} event. If the websocket was opened
+ * with the {@code buffered} option, messages are instead stored on the websocket until they are read with
+ * {@link #receive} or {@link #receiveMany}, and no {@code websocket_message} events are queued. Buffered messages are
+ * never dropped when the computer's event queue is full: once enough messages are waiting, we stop reading from the
+ * server until some have been received. A {@code websocket_receive} event (with the websocket's URL) is queued when a
+ * message arrives, to wake up any pending {@link #receive}. Only one such event is queued until the buffer is next
+ * checked, so receiving a burst of messages does not flood the event queue.
+ *
  * @cc.module http.Websocket
  * @see dan200.computercraft.core.apis.HTTPAPI#websocket On how to open a websocket.
  */
 public class WebsocketHandle implements Closeable
 {
+    /**
+     * The number of messages we buffer before we stop reading from the socket. Netty may already have decoded a few
+     * more frames by the time reading stops, so this is a soft limit.
+     */
+    private static final int MAX_BUFFERED = 128;
+
     private final Websocket websocket;
     private final Options options;
-    private boolean closed = false;
+    private final boolean buffered;
+    private volatile boolean closed = false;
 
     private Channel channel;
 
-    public WebsocketHandle( Websocket websocket, Options options, Channel channel )
+    /**
+     * Messages received from the server, waiting for {@link #receive(Optional)}. Each message is a pair of its
+     * contents and whether it is binary. This is only used if the websocket is {@link #buffered}.
+     */
+    private final ArrayDeque<Object[]> buffer = new ArrayDeque<>();
+    private boolean paused = false;
+
+    /**
+     * Whether a {@code websocket_receive} event has been queued since the buffer was last checked. This is cleared
+     * every time we poll the buffer, so if the event is dropped (for instance, because the computer's event queue is
+     * full), the next message will queue another one.
+     */
+    private boolean wakeupPending = false;
+
+    /**
+     * Whether buffered messages have been received after the websocket was closed. In this case, the next receive
+     * should return {@code nil} (as it would have done had the websocket been closed while waiting), rather than
+     * erroring.
+     */
+    private boolean receivedAfterClose = false;
+
+    /**
+     * Whether a flush has been scheduled on the channel's event loop. This is only accessed from the event loop.
+     */
+    private boolean flushScheduled = false;
+
+    public WebsocketHandle( Websocket websocket, Options options, Channel channel, boolean buffered )
     {
         this.websocket = websocket;
         this.options = options;
         this.channel = channel;
+        this.buffered = buffered;
     }
 
     /**
      * Wait for a message from the server.
      *
+     * If this websocket is buffered, messages which were received before the websocket was closed may still be read
+     * after it has been closed.
+     *
      * @param timeout The number of seconds to wait if no message is received.
      * @return The result of receiving.
      * @throws LuaException If the websocket has been closed.
@@ -59,41 +115,245 @@ public class WebsocketHandle implements Closeable
     @LuaFunction
     public final MethodResult receive( Optional<Double> timeout ) throws LuaException
     {
+        return receive( 0, timeout );
+    }
+
+    /**
+     * Wait for one or more messages from the server. This waits in the same way as {@link #receive}, but then returns
+     * every message which is available (up to {@code limit}), rather than just the first one.
+     *
+     * @param limit   The maximum number of messages to return. If not given, all available messages are returned.
+     * @param timeout The number of seconds to wait if no message is received.
+     * @return The result of receiving.
+     * @throws LuaException If the websocket has been closed.
+     * @throws LuaException If the limit is not positive.
+     * @cc.treturn [1] { string... } The received messages.
+     * @cc.treturn { boolean... } Whether each message was a binary message.
+     * @cc.treturn [2] nil If the websocket was closed while waiting, or if we timed out.
+     */
+    @LuaFunction
+    public final MethodResult receiveMany( Optional<Integer> limit, Optional<Double> timeout ) throws LuaException
+    {
+        int count = limit.orElse( Integer.MAX_VALUE );
+        if( count <= 0 ) throw new LuaException( "Limit must be positive" );
+        return receive( count, timeout );
+    }
+
+    /**
+     * Receive one or more messages.
+     *
+     * @param limit   The maximum number of messages to receive, or {@code 0} to receive a single message (as
+     *                {@link #receive(Optional)} does).
+     * @param timeout The number of seconds to wait if no message is received.
+     * @return The result of receiving.
+     * @throws LuaException If the websocket has been closed.
+     */
+    private MethodResult receive( int limit, Optional<Double> timeout ) throws LuaException
+    {
+        if( buffered )
+        {
+            Object[] messages = poll( limit );
+            if( messages != null ) return MethodResult.of( messages );
+
+            if( closed && receivedAfterClose )
+            {
+                receivedAfterClose = false;
+                return MethodResult.of();
+            }
+        }
+
         checkOpen();
+
         int timeoutId = timeout.isPresent()
             ? websocket.environment().startTimer( Math.round( checkFinite( 0, timeout.get() ) / 0.05 ) )
             : -1;
 
-        return new ReceiveCallback( timeoutId ).pull;
+        return new ReceiveCallback( timeoutId, limit ).pull;
+    }
+
+    /**
+     * Add a message from the server to the receive buffer. This is called from the channel's event loop.
+     *
+     * @param message The message's contents.
+     * @param binary  Whether this is a binary message.
+     * @return Whether the message was buffered. If not, it should be queued as an event instead.
+     */
+    boolean offer( Object message, boolean binary )
+    {
+        if( !buffered ) return false;
+
+        boolean wakeup;
+        synchronized( buffer )
+        {
+            // Messages which arrive after closing are dropped, as they would be were they queued as events.
+            if( closed ) return true;
+
+            buffer.add( new Object[] { message, binary } );
+            wakeup = !wakeupPending;
+            wakeupPending = true;
+
+            if( !paused && buffer.size() >= MAX_BUFFERED )
+            {
+                paused = true;
+                setAutoRead( false );
+            }
+        }
+
+        // Wake up any pending receive. We only need to do this if nothing has checked the buffer since the last wake up:
+        // otherwise, the receive will pick this message up when it handles that event.
+        if( wakeup ) websocket.environment().queueEvent( RECEIVE_EVENT, websocket.address() );
+        return true;
+    }
+
+    /**
+     * Take messages from the receive buffer.
+     *
+     * @param limit The maximum number of messages to receive, or {@code 0} to receive a single message.
+     * @return The values to return from {@link #receive}, or {@code null} if no messages are available.
+     */
+    @Nullable
+    private Object[] poll( int limit )
+    {
+        synchronized( buffer )
+        {
+            wakeupPending = false;
+            if( buffer.isEmpty() ) return null;
+            if( closed ) receivedAfterClose = true;
+
+            Object[] result;
+            if( limit <= 0 )
+            {
+                result = buffer.poll();
+            }
+            else
+            {
+                int count = Math.min( limit, buffer.size() );
+                List<Object> messages = new ArrayList<>( count );
+                List<Object> binary = new ArrayList<>( count );
+                for( int i = 0; i < count; i++ )
+                {
+                    Object[] message = buffer.poll();
+                    messages.add( message[0] );
+                    binary.add( message[1] );
+                }
+                result = new Object[] { messages, binary };
+            }
+
+            if( paused && buffer.size() <= MAX_BUFFERED / 2 )
+            {
+                paused = false;
+                setAutoRead( true );
+            }
+
+            return result;
+        }
+    }
+
+    private void setAutoRead( boolean autoRead )
+    {
+        Channel channel = this.channel;
+        if( channel != null ) channel.config().setAutoRead( autoRead );
     }
 
     /**
      * Send a websocket message to the connected server.
      *
-     * @param message The message to send.
-     * @param binary  Whether this message should be treated as a
+     * @param args The message to send, and whether it is binary.
      * @throws LuaException If the message is too large.
      * @throws LuaException If the websocket has been closed.
+     * @cc.tparam string message The message to send.
+     * @cc.tparam [opt] boolean binary Whether this message should be treated as a binary message.
      */
     @LuaFunction
-    public final void send( Object message, Optional<Boolean> binary ) throws LuaException
+    public final void send( IArguments args ) throws LuaException
     {
         checkOpen();
 
-        String text = StringUtil.toString( message );
-        if( options.websocketMessage != 0 && text.length() > options.websocketMessage )
+        Channel channel = this.channel;
+        if( args.optBoolean( 1, false ) )
+        {
+            ByteBuffer bytes = getBytes( args );
+            int length = bytes.remaining();
+            checkMessageSize( length );
+            websocket.environment().addTrackingChange( TrackingField.WEBSOCKET_OUTGOING, length );
+
+            if( channel != null )
+            {
+                // Copy the Lua string's bytes straight into a pooled buffer, ready to be written to the socket.
+                ByteBuf buffer = channel.alloc().directBuffer( length );
+                buffer.writeBytes( bytes );
+                write( channel, new BinaryWebSocketFrame( buffer ) );
+            }
+        }
+        else
+        {
+            String text = StringUtil.toString( args.get( 0 ) );
+            checkMessageSize( text.length() );
+            websocket.environment().addTrackingChange( TrackingField.WEBSOCKET_OUTGOING, ByteBufUtil.utf8Bytes( text ) );
+
+            if( channel != null )
+            {
+                write( channel, new TextWebSocketFrame( ByteBufUtil.writeUtf8( channel.alloc(), text ) ) );
+            }
+        }
+    }
+
+    private void checkMessageSize( int length ) throws LuaException
+    {
+        if( options.websocketMessage != 0 && length > options.websocketMessage )
         {
             throw new LuaException( "Message is too large" );
         }
+    }
 
-        websocket.environment().addTrackingChange( TrackingField.WEBSOCKET_OUTGOING, text.length() );
+    /**
+     * Get the message to send as raw bytes. Strings are read directly from the Lua string, without decoding them
+     * first. Any other value is converted to a string, as {@link #send(IArguments)} has always done.
+     *
+     * @param args The arguments to {@link #send(IArguments)}.
+     * @return The message's bytes.
+     * @throws LuaException If the message could not be read.
+     */
+    private static ByteBuffer getBytes( IArguments args ) throws LuaException
+    {
+        try
+        {
+            return args.getBytes( 0 );
+        }
+        catch( LuaException e )
+        {
+            return LuaValues.encode( StringUtil.toString( args.get( 0 ) ) );
+        }
+    }
 
-        Channel channel = this.channel;
-        if( channel != null )
+    /**
+     * Write a frame to the channel, without flushing it immediately. Instead, we schedule a flush on the event loop,
+     * after the write. Any further messages written before that flush runs are sent along with it, meaning a burst of
+     * {@link #send(IArguments)} calls results in a single flush.
+     *
+     * @param channel The channel to write to.
+     * @param frame   The frame to write.
+     */
+    private void write( Channel channel, WebSocketFrame frame )
+    {
+        EventLoop loop = channel.eventLoop();
+        try
+        {
+            loop.execute( () -> {
+                channel.write( frame, channel.voidPromise() );
+                if( flushScheduled ) return;
+
+                flushScheduled = true;
+                loop.execute( () -> {
+                    flushScheduled = false;
+                    channel.flush();
+                } );
+            } );
+        }
+        catch( RejectedExecutionException e )
         {
-            channel.writeAndFlush( binary.orElse( false )
-                ? new BinaryWebSocketFrame( Unpooled.wrappedBuffer( LuaValues.encode( text ) ) )
-                : new TextWebSocketFrame( text ) );
+            // The event loop has shut down, so the frame will never be written.
+            frame.release();
         }
     }
 
@@ -116,12 +376,25 @@ public class WebsocketHandle implements Closeable
     @Override
     public void close()
     {
+        // We deliberately keep any buffered messages, so they can still be received after the websocket is closed.
         closed = true;
 
         Channel channel = this.channel;
         if( channel != null )
         {
-            channel.close();
+            // Flush any writes which are still waiting for a scheduled flush, so they are not discarded by the close.
+            // This runs on the event loop, and so after every write queued by send.
+            try
+            {
+                channel.eventLoop().execute( () -> {
+                    channel.flush();
+                    channel.close();
+                } );
+            }
+            catch( RejectedExecutionException e )
+            {
+                channel.close();
+            }
             this.channel = null;
         }
     }
@@ -130,23 +403,38 @@ public class WebsocketHandle implements Closeable
     {
         final MethodResult pull = MethodResult.pullEvent( null, this );
         private final int timeoutId;
+        private final int limit;
 
-        ReceiveCallback( int timeoutId )
+        ReceiveCallback( int timeoutId, int limit )
         {
             this.timeoutId = timeoutId;
+            this.limit = limit;
         }
 
         @Nonnull
         @Override
         public MethodResult resume( Object[] event )
         {
-            if( event.length >= 3 && Objects.equal( event[0], MESSAGE_EVENT ) && Objects.equal( event[1], websocket.address() ) )
+            if( buffered )
+            {
+                // Check the buffer on every event, not just websocket_receive: that event may have been dropped if the
+                // event queue was full. Equally, it may be stale (the message having already been received), in which
+                // case keep waiting.
+                Object[] messages = poll( limit );
+                if( messages != null ) return MethodResult.of( messages );
+            }
+
+            if( !buffered && event.length >= 3 && Objects.equal( event[0], MESSAGE_EVENT ) && Objects.equal( event[1], websocket.address() ) )
             {
-                return MethodResult.of( Arrays.copyOfRange( event, 2, event.length ) );
+                Object[] message = Arrays.copyOfRange( event, 2, event.length );
+                return limit <= 0 ? MethodResult.of( message ) : MethodResult.of(
+                    Collections.singletonList( message[0] ),
+                    Collections.singletonList( message.length >= 2 ? message[1] : false )
+                );
             }
             else if( event.length >= 2 && Objects.equal( event[0], CLOSE_EVENT ) && Objects.equal( event[1], websocket.address() ) && closed )
             {
-                // If the socket is closed abort.
+                // Any messages received before the socket was closed have been returned above, so abort.
                 return MethodResult.of();
             }
             else if( event.length >= 2 && timeoutId != -1 && Objects.equal( event[0], TIMER_EVENT )
@@ -20,6 +20,7 @@ import dan200.computercraft.core.terminal.Terminal;
 import dan200.computercraft.core.tracking.Tracking;
 import dan200.computercraft.shared.util.Colour;
 import dan200.computercraft.shared.util.IoUtil;
+import dan200.computercraft.shared.util.ThreadUtils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -28,6 +29,9 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -50,11 +54,28 @@ import java.util.concurrent.locks.ReentrantLock;
  *
  * One final responsibility for the executor is calling {@link ILuaAPI#update()} every tick, via the {@link #tick()}
  * method. This should only be called when the computer is actually on ({@link #isOn}).
+ *
+ * Creating a computer's mounts may need to touch the disk, so this is done on a separate pool of threads
+ * ({@link #MOUNT_EXECUTOR}) before the computer is turned on, rather than blocking the {@link ComputerThread}.
  */
 final class ComputerExecutor
 {
     private static final int QUEUE_LIMIT = 256;
 
+    private static final int MOUNT_THREADS = Math.max( 1, Math.min( 4, Runtime.getRuntime().availableProcessors() / 2 ) );
+
+    private static final ThreadPoolExecutor MOUNT_EXECUTOR = new ThreadPoolExecutor(
+        MOUNT_THREADS, MOUNT_THREADS,
+        60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(),
+        ThreadUtils.factory( "Computer-Mount" )
+    );
+
+    static
+    {
+        MOUNT_EXECUTOR.allowCoreThreadTimeOut( true );
+    }
+
     private final Computer computer;
     private final List<ILuaAPI> apis = new ArrayList<>();
     final TimeoutState timeout = new TimeoutState();
@@ -113,6 +134,14 @@ final class ComputerExecutor
      */
     long vRuntimeStart;
 
+    /**
+     * The minimum virtual runtime of the queue this computer last ran on, used to rebase {@link #virtualRuntime} when
+     * it is queued on a different runner.
+     *
+     * @see ComputerThread
+     */
+    long runtimeBase;
+
     /**
      * The command that {@link #work()} should execute on the computer thread.
      *
@@ -148,6 +177,33 @@ final class ComputerExecutor
 
     private IWritableMount rootMount;
 
+    /**
+     * The ROM mount, created on {@link #MOUNT_EXECUTOR} before turning on.
+     *
+     * @see #prepareMounts()
+     */
+    private IMount romMount;
+
+    /**
+     * Whether {@link #rootMount} and {@link #romMount} have been created, and so the computer may be turned on.
+     */
+    private volatile boolean mountsReady;
+
+    /**
+     * Whether we are waiting for our mounts to be created. While this is set, we are removed from the
+     * {@link ComputerThread}'s queue, and will be re-queued once they are ready.
+     *
+     * @see #queueLock
+     */
+    private boolean waitingForMounts;
+
+    /**
+     * The time at which the computer was last scheduled to turn on.
+     *
+     * @see Tracking#addBootTiming(Computer, long)
+     */
+    private volatile long bootStart;
+
     /**
      * The thread the executor is running on. This is non-null when performing work. We use this to ensure we're only
      * doing one bit of work at one time.
@@ -213,6 +269,7 @@ final class ComputerExecutor
             if( closed || isOn || command != null ) return;
 
             command = StateCommand.TURN_ON;
+            bootStart = System.nanoTime();
             enqueue();
         }
     }
@@ -354,14 +411,54 @@ final class ComputerExecutor
         return rootMount;
     }
 
+    /**
+     * Create this computer's mounts on the {@link #MOUNT_EXECUTOR}, and then requeue the computer to turn on.
+     */
+    private void prepareMounts()
+    {
+        synchronized( queueLock )
+        {
+            // Put the command back, so we turn on once the mounts are ready. If another command has been queued in
+            // the meantime, then we run that instead.
+            if( command == null ) command = StateCommand.TURN_ON;
+            if( waitingForMounts ) return;
+            waitingForMounts = true;
+        }
+
+        MOUNT_EXECUTOR.execute( () -> {
+            try
+            {
+                getRootMount();
+                romMount = getRomMount();
+            }
+            catch( RuntimeException e )
+            {
+                // Any failures will be reported when we actually try to create the filesystem.
+                ComputerCraft.log.error( "Error creating mounts for computer", e );
+            }
+
+            mountsReady = true;
+            synchronized( queueLock )
+            {
+                waitingForMounts = false;
+                if( command != null ) enqueue();
+            }
+        } );
+    }
+
     private FileSystem createFileSystem()
     {
+        // Mounts are only prepared for a single boot, so the ROM is reloaded after resources change.
+        IMount romMount = this.romMount;
+        this.romMount = null;
+        mountsReady = false;
+
         FileSystem filesystem = null;
         try
         {
             filesystem = new FileSystem( "hdd", getRootMount() );
 
-            IMount romMount = getRomMount();
+            if( romMount == null ) romMount = getRomMount();
             if( romMount == null )
             {
                 displayFailure( "Cannot mount ROM", null );
@@ -453,6 +550,7 @@ final class ComputerExecutor
             // Initialisation has finished, so let's mark ourselves as on.
             isOn = true;
             computer.markChanged();
+            Tracking.addBootTiming( computer, System.nanoTime() - bootStart );
         }
         finally
         {
@@ -533,7 +631,7 @@ final class ComputerExecutor
 
         synchronized( queueLock )
         {
-            if( eventQueue.isEmpty() && command == null ) return onComputerQueue = false;
+            if( waitingForMounts || (eventQueue.isEmpty() && command == null) ) return onComputerQueue = false;
             return true;
         }
     }
@@ -587,6 +685,11 @@ final class ComputerExecutor
             {
                 case TURN_ON:
                     if( isOn ) return;
+                    if( !mountsReady )
+                    {
+                        prepareMounts();
+                        return;
+                    }
                     turnOn();
                     break;
 
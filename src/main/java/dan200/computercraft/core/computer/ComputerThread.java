@@ -10,9 +10,12 @@ import dan200.computercraft.shared.util.ThreadUtils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Comparator;
 import java.util.TreeSet;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.LockSupport;
@@ -43,6 +46,12 @@ import static dan200.computercraft.core.computer.TimeoutState.TIMEOUT;
  * In reality, it's unlikely that more than a few computers are waiting to execute at once, so this will not have much
  * effect unless you have a computer hogging execution time. However, it is pretty effective in those situations.
  *
+ * When {@link ComputerCraft#computerThreadWorkStealing} is enabled, we instead give each {@link TaskRunner} its own
+ * queue (much like Linux's per-CPU run queues). Computers are queued onto an idle runner where possible, runners
+ * requeue their own computers, and a runner which runs out of work steals from the busiest runner. Each queue tracks
+ * its own minimum virtual runtime, and computers which move between queues have their runtime rebased onto the new
+ * queue. This avoids every runner contending on {@link #computerLock} when there are many active computers.
+ *
  * @see TimeoutState For how hard timeouts are handled.
  * @see ComputerExecutor For how computers actually do execution.
  */
@@ -76,6 +85,15 @@ public final class ComputerThread
      */
     private static final long LATENCY_MAX_TASKS = DEFAULT_LATENCY / DEFAULT_MIN_PERIOD;
 
+    /**
+     * How long an idle runner will wait for work before trying to steal from another runner again, in nanoseconds.
+     *
+     * Runners are normally woken as soon as work is queued for them (or, when it is queued on a busy runner, one idle
+     * runner is woken to steal it), so this only bounds how long queued work can sit behind a busy runner. When nothing
+     * is queued at all, idle runners wait without a timeout.
+     */
+    private static final long STEAL_INTERVAL = TimeUnit.MILLISECONDS.toNanos( 5 );
+
     /**
      * Lock used for modifications to the array of current threads.
      */
@@ -99,20 +117,38 @@ public final class ComputerThread
     private static long latency;
     private static long minPeriod;
 
+    /**
+     * Whether each runner has its own queue, rather than sharing {@link #computerQueue}. This is fixed when the
+     * runners are first created.
+     */
+    private static volatile boolean workStealing;
+
     private static final ReentrantLock computerLock = new ReentrantLock();
 
     private static final Condition hasWork = computerLock.newCondition();
 
-    /**
-     * Active queues to execute.
-     */
-    private static final TreeSet<ComputerExecutor> computerQueue = new TreeSet<>( ( a, b ) -> {
+    private static final Comparator<ComputerExecutor> RUNTIME_ORDER = ( a, b ) -> {
         if( a == b ) return 0; // Should never happen, but let's be consistent here
 
         long at = a.virtualRuntime, bt = b.virtualRuntime;
         if( at == bt ) return Integer.compare( a.hashCode(), b.hashCode() );
         return at < bt ? -1 : 1;
-    } );
+    };
+
+    /**
+     * Active queues to execute.
+     */
+    private static final TreeSet<ComputerExecutor> computerQueue = new TreeSet<>( RUNTIME_ORDER );
+
+    /**
+     * The number of executors waiting on any of the runners' queues, when {@link #workStealing} is enabled.
+     */
+    private static final AtomicInteger queuedExecutors = new AtomicInteger();
+
+    /**
+     * The runner which we last queued an executor on, used to spread computers across runners.
+     */
+    private static final AtomicInteger nextRunner = new AtomicInteger();
 
     /**
      * The minimum {@link ComputerExecutor#virtualRuntime} time on the tree.
@@ -137,6 +173,7 @@ public final class ComputerThread
             {
                 // TODO: Change the runners length on config reloads
                 runners = new TaskRunner[ComputerCraft.computerThreads];
+                workStealing = ComputerCraft.computerThreadWorkStealing && runners.length > 1;
 
                 // latency and minPeriod are scaled by 1 + floor(log2(threads)). We can afford to execute tasks for
                 // longer when executing on more than one thread.
@@ -153,7 +190,7 @@ public final class ComputerThread
                     // Mark the old runner as dead, just in case.
                     if( runner != null ) runner.running = false;
                     // And start a new runner
-                    runnerFactory.newThread( runners[i] = new TaskRunner() ).start();
+                    runnerFactory.newThread( runners[i] = newRunner( runner ) ).start();
                 }
             }
 
@@ -177,6 +214,17 @@ public final class ComputerThread
 
                     runner.running = false;
                     if( runner.owner != null ) runner.owner.interrupt();
+
+                    runner.queueLock.lock();
+                    try
+                    {
+                        queuedExecutors.addAndGet( -runner.queue.size() );
+                        runner.queue.clear();
+                    }
+                    finally
+                    {
+                        runner.queueLock.unlock();
+                    }
                 }
             }
         }
@@ -202,6 +250,12 @@ public final class ComputerThread
      */
     static void queue( @Nonnull ComputerExecutor executor )
     {
+        if( workStealing )
+        {
+            queueLocal( executor );
+            return;
+        }
+
         computerLock.lock();
         try
         {
@@ -237,6 +291,157 @@ public final class ComputerThread
         }
     }
 
+    /**
+     * Queue an executor on one of the runners' own queues. This follows the same rules as {@link #queue}, but uses the
+     * minimum runtime of the queue we're added to rather than a global one.
+     *
+     * @param executor The computer to execute work on.
+     */
+    private static void queueLocal( @Nonnull ComputerExecutor executor )
+    {
+        if( executor.onComputerQueue ) throw new IllegalStateException( "Cannot queue already queued executor" );
+        executor.onComputerQueue = true;
+        pushLocal( executor );
+    }
+
+    /**
+     * Add an executor which is already marked as queued to one of the runners' queues.
+     *
+     * @param executor The computer to execute work on.
+     */
+    private static void pushLocal( @Nonnull ComputerExecutor executor )
+    {
+        while( true )
+        {
+            TaskRunner runner = pickRunner();
+            if( runner == null ) return; // We've been stopped, so just drop this computer.
+
+            boolean busy;
+            runner.queueLock.lock();
+            try
+            {
+                // This runner has been replaced since we picked it, so try again.
+                if( runner.closed ) continue;
+
+                long newRuntime = runner.minimumVirtualRuntime;
+                if( executor.virtualRuntime == 0 )
+                {
+                    // Slow down new computers a little bit.
+                    newRuntime += scaledPeriod();
+                }
+                else
+                {
+                    // Give a small boost to computers which have slept a little.
+                    newRuntime -= latency / 2;
+                }
+
+                // Computers keep their runtime relative to the queue they last ran on, so rebase onto this one.
+                long runtime = executor.virtualRuntime - executor.runtimeBase + runner.minimumVirtualRuntime;
+                executor.virtualRuntime = Math.max( newRuntime, runtime );
+
+                runner.queue.add( executor );
+                queuedExecutors.incrementAndGet();
+                runner.hasWork.signal();
+                busy = !runner.idle;
+            }
+            finally
+            {
+                runner.queueLock.unlock();
+            }
+
+            // This runner won't get to the work until it finishes its current task, so let an idle one steal it.
+            if( busy ) wakeIdleRunner( runner );
+            return;
+        }
+    }
+
+    /**
+     * Wake up one idle runner, so that it may steal work which has been queued on a busy runner.
+     *
+     * Idle runners wait without a timeout when no work is queued, so this must be called whenever work is queued on a
+     * runner which is not idle. Each runner marks itself as idle before checking {@link #queuedExecutors}, and we
+     * increment that before checking {@link TaskRunner#idle}, so either we see the runner as idle here, or it sees the
+     * queued work and only waits for {@link #STEAL_INTERVAL}.
+     *
+     * @param busy The runner which the work was queued on.
+     */
+    private static void wakeIdleRunner( TaskRunner busy )
+    {
+        TaskRunner[] currentRunners = runners;
+        if( currentRunners == null ) return;
+
+        for( TaskRunner runner : currentRunners )
+        {
+            if( runner == null || runner == busy || !runner.idle ) continue;
+
+            runner.queueLock.lock();
+            try
+            {
+                if( !runner.idle ) continue;
+                runner.hasWork.signal();
+                return;
+            }
+            finally
+            {
+                runner.queueLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Find a runner to queue a computer on. We prefer idle runners, falling back to the less loaded of two arbitrary
+     * runners otherwise.
+     *
+     * @return The runner to queue onto, or {@code null} if there are no runners.
+     */
+    @Nullable
+    private static TaskRunner pickRunner()
+    {
+        TaskRunner[] currentRunners = runners;
+        if( currentRunners == null || currentRunners.length == 0 ) return null;
+
+        int length = currentRunners.length;
+        int start = Math.floorMod( nextRunner.getAndIncrement(), length );
+        for( int i = 0; i < length; i++ )
+        {
+            TaskRunner runner = currentRunners[(start + i) % length];
+            if( runner != null && runner.idle && !runner.closed ) return runner;
+        }
+
+        TaskRunner first = currentRunners[start];
+        TaskRunner second = currentRunners[ThreadLocalRandom.current().nextInt( length )];
+        if( first == null || first.closed ) return second;
+        if( second == null || second.closed ) return first;
+        return second.queue.size() < first.queue.size() ? second : first;
+    }
+
+    /**
+     * Create a new runner, taking over any work queued on the one it replaces.
+     *
+     * @param previous The runner which this one replaces.
+     * @return The new runner.
+     */
+    private static TaskRunner newRunner( @Nullable TaskRunner previous )
+    {
+        TaskRunner runner = new TaskRunner();
+        if( previous == null ) return runner;
+
+        previous.queueLock.lock();
+        try
+        {
+            previous.closed = true;
+            runner.minimumVirtualRuntime = previous.minimumVirtualRuntime;
+            runner.queue.addAll( previous.queue );
+            previous.queue.clear();
+        }
+        finally
+        {
+            previous.queueLock.unlock();
+        }
+
+        return runner;
+    }
+
 
     /**
      * Update the {@link ComputerExecutor#virtualRuntime}s of all running tasks, and then update the
@@ -303,6 +508,12 @@ public final class ComputerThread
             );
         }
 
+        if( workStealing )
+        {
+            afterWorkLocal( runner, executor );
+            return;
+        }
+
         computerLock.lock();
         try
         {
@@ -321,6 +532,118 @@ public final class ComputerThread
         }
     }
 
+    /**
+     * The equivalent of {@link #afterWork(TaskRunner, ComputerExecutor)} for when each runner has its own queue. We
+     * update this runner's runtimes, and then requeue the executor on this runner.
+     *
+     * @param runner   The runner this task was on.
+     * @param executor The executor to requeue
+     */
+    private static void afterWorkLocal( TaskRunner runner, ComputerExecutor executor )
+    {
+        runner.queueLock.lock();
+        try
+        {
+            long now = System.nanoTime();
+            int tasks = 1 + runner.queue.size();
+            long minRuntime = executor.virtualRuntime += (now - executor.vRuntimeStart) / tasks;
+            if( !runner.queue.isEmpty() ) minRuntime = Math.min( minRuntime, runner.queue.first().virtualRuntime );
+            if( minRuntime > runner.minimumVirtualRuntime ) runner.minimumVirtualRuntime = minRuntime;
+
+            // Remember which queue this runtime is relative to, should we need to queue it elsewhere.
+            executor.runtimeBase = runner.minimumVirtualRuntime;
+        }
+        finally
+        {
+            runner.queueLock.unlock();
+        }
+
+        // Only now that the runtimes are up to date may the executor be requeued: once afterWork returns false, another
+        // thread is free to queue it (using its runtime as the sort key). This must happen outside the runner's lock,
+        // as queueing an executor takes its lock and then the runner's.
+        if( !executor.afterWork() ) return;
+
+        boolean queued = false, waiting = false;
+        runner.queueLock.lock();
+        try
+        {
+            // If this runner has been replaced, then the new one has taken over the queue, so find somewhere else to
+            // put this executor.
+            if( !runner.closed )
+            {
+                runner.queue.add( executor );
+                queuedExecutors.incrementAndGet();
+                queued = true;
+
+                // We'll take the first executor ourselves, but anything behind it could be run by an idle runner.
+                waiting = runner.queue.size() > 1;
+            }
+        }
+        finally
+        {
+            runner.queueLock.unlock();
+        }
+
+        if( !queued )
+        {
+            pushLocal( executor );
+        }
+        else if( waiting )
+        {
+            wakeIdleRunner( runner );
+        }
+    }
+
+    /**
+     * Take an executor from the runner with the most queued work.
+     *
+     * @param thief The runner which is looking for work.
+     * @return The stolen executor, or {@code null} if there is no work to steal.
+     */
+    @Nullable
+    private static ComputerExecutor steal( TaskRunner thief )
+    {
+        TaskRunner[] currentRunners = runners;
+        if( currentRunners == null ) return null;
+
+        // We read the queue sizes without locking. This is only a heuristic, so it doesn't matter if they're stale.
+        TaskRunner victim = null;
+        int victimSize = 0;
+        for( TaskRunner runner : currentRunners )
+        {
+            if( runner == null || runner == thief ) continue;
+
+            int size = runner.queue.size();
+            if( size > victimSize )
+            {
+                victim = runner;
+                victimSize = size;
+            }
+        }
+
+        if( victim == null ) return null;
+
+        ComputerExecutor executor;
+        long victimMinimum;
+        victim.queueLock.lock();
+        try
+        {
+            executor = victim.queue.pollFirst();
+            victimMinimum = victim.minimumVirtualRuntime;
+        }
+        finally
+        {
+            victim.queueLock.unlock();
+        }
+
+        if( executor == null ) return null;
+        queuedExecutors.decrementAndGet();
+
+        // Move the executor's runtime from the victim's queue to our own.
+        executor.virtualRuntime = Math.max( 0, executor.virtualRuntime - victimMinimum + thief.minimumVirtualRuntime );
+        return executor;
+    }
+
     /**
      * The scaled period for a single task.
      *
@@ -332,7 +655,7 @@ public final class ComputerThread
     static long scaledPeriod()
     {
         // +1 to include the current task
-        int count = 1 + computerQueue.size();
+        int count = 1 + (workStealing ? queuedExecutors.get() : computerQueue.size());
         return count < LATENCY_MAX_TASKS ? latency / count : minPeriod;
     }
 
@@ -343,7 +666,7 @@ public final class ComputerThread
      */
     static boolean hasPendingWork()
     {
-        return !computerQueue.isEmpty();
+        return workStealing ? queuedExecutors.get() > 0 : !computerQueue.isEmpty();
     }
 
     /**
@@ -378,7 +701,7 @@ public final class ComputerThread
                                 ComputerCraft.log.warn( "Previous runner ({}) has crashed, restarting!",
                                     runner != null && runner.owner != null ? runner.owner.getName() : runner );
                                 if( runner != null ) runner.running = false;
-                                runnerFactory.newThread( runners[i] = new TaskRunner() ).start();
+                                runnerFactory.newThread( runners[i] = newRunner( runner ) ).start();
                             }
 
                             // If the runner has no work, skip
@@ -410,7 +733,7 @@ public final class ComputerThread
                                 {
                                     if( running && runners.length > i && runners[i] == runner )
                                     {
-                                        runnerFactory.newThread( currentRunners[i] = new TaskRunner() ).start();
+                                        runnerFactory.newThread( currentRunners[i] = newRunner( runner ) ).start();
                                     }
                                 }
                             }
@@ -432,7 +755,7 @@ public final class ComputerThread
     }
 
     /**
-     * Pulls tasks from the {@link #computerQueue} queue and runs them.
+     * Pulls tasks from the {@link #computerQueue} queue (or its own queue, when work stealing) and runs them.
      *
      * This is responsible for running the {@link ComputerExecutor#work()}, {@link ComputerExecutor#beforeWork()} and
      * {@link ComputerExecutor#afterWork()} functions. Everything else is either handled by the executor, timeout
@@ -445,6 +768,28 @@ public final class ComputerThread
 
         final AtomicReference<ComputerExecutor> currentExecutor = new AtomicReference<>();
 
+        /**
+         * This runner's own queue, used when {@link #workStealing} is enabled. Guarded by {@link #queueLock}.
+         */
+        final TreeSet<ComputerExecutor> queue = new TreeSet<>( RUNTIME_ORDER );
+        final ReentrantLock queueLock = new ReentrantLock();
+        final Condition hasWork = queueLock.newCondition();
+
+        /**
+         * The minimum {@link ComputerExecutor#virtualRuntime} on this runner's queue.
+         */
+        volatile long minimumVirtualRuntime = 0;
+
+        /**
+         * Whether this runner is waiting for work.
+         */
+        volatile boolean idle = false;
+
+        /**
+         * Whether this runner has been replaced, and so its queue should no longer be used.
+         */
+        volatile boolean closed = false;
+
         @Override
         public void run()
         {
@@ -457,17 +802,8 @@ public final class ComputerThread
                 ComputerExecutor executor;
                 try
                 {
-                    computerLock.lockInterruptibly();
-                    try
-                    {
-                        while( computerQueue.isEmpty() ) hasWork.await();
-                        executor = computerQueue.pollFirst();
-                        assert executor != null : "hasWork should ensure we never receive null work";
-                    }
-                    finally
-                    {
-                        computerLock.unlock();
-                    }
+                    executor = workStealing ? takeLocal() : take();
+                    if( executor == null ) continue;
                 }
                 catch( InterruptedException ignored )
                 {
@@ -516,6 +852,78 @@ public final class ComputerThread
                 }
             }
         }
+
+        private ComputerExecutor take() throws InterruptedException
+        {
+            computerLock.lockInterruptibly();
+            try
+            {
+                while( computerQueue.isEmpty() ) ComputerThread.hasWork.await();
+                ComputerExecutor executor = computerQueue.pollFirst();
+                assert executor != null : "hasWork should ensure we never receive null work";
+                return executor;
+            }
+            finally
+            {
+                computerLock.unlock();
+            }
+        }
+
+        @Nullable
+        private ComputerExecutor takeLocal() throws InterruptedException
+        {
+            while( running && ComputerThread.running )
+            {
+                queueLock.lockInterruptibly();
+                try
+                {
+                    ComputerExecutor executor = queue.pollFirst();
+                    if( executor != null )
+                    {
+                        queuedExecutors.decrementAndGet();
+                        return executor;
+                    }
+                }
+                finally
+                {
+                    queueLock.unlock();
+                }
+
+                ComputerExecutor stolen = steal( this );
+                if( stolen != null ) return stolen;
+
+                queueLock.lockInterruptibly();
+                try
+                {
+                    if( !queue.isEmpty() ) continue;
+
+                    idle = true;
+                    try
+                    {
+                        // If nothing is queued anywhere, there is nothing to steal, so wait until we're woken. Otherwise,
+                        // try stealing again shortly, in case the runner holding the work is busy.
+                        if( queuedExecutors.get() == 0 )
+                        {
+                            hasWork.await();
+                        }
+                        else
+                        {
+                            hasWork.awaitNanos( STEAL_INTERVAL );
+                        }
+                    }
+                    finally
+                    {
+                        idle = false;
+                    }
+                }
+                finally
+                {
+                    queueLock.unlock();
+                }
+            }
+
+            return null;
+        }
     }
 
     private static void timeoutTask( ComputerExecutor executor, Thread thread, long time )
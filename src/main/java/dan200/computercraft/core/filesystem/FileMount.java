@@ -9,32 +9,78 @@ import com.google.common.collect.Sets;
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.api.filesystem.FileOperationException;
 import dan200.computercraft.api.filesystem.IWritableMount;
+import dan200.computercraft.shared.util.ThreadUtils;
 
 import javax.annotation.Nonnull;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.OptionalLong;
 import java.util.Set;
-
+import java.util.concurrent.*;
+
+/**
+ * A mount backed by a directory on disk, with a limited capacity.
+ *
+ * Computing the space used by a directory requires walking the whole tree, which is expensive for large directories.
+ * Instead, we keep a usage "ledger" alongside the directory, which is rewritten shortly after any change. The ledger
+ * is deleted as soon as the mount is modified, so if the server stops before it is rewritten, we will rescan the
+ * directory (on a background thread) the next time it is mounted.
+ *
+ * The ledger also records a fingerprint of the top level of the directory (the name, size and modification time of
+ * each entry). If files are added, removed or edited there outside the game, the fingerprint no longer matches and
+ * the directory is rescanned. Changes made deeper in the tree are not detected. This is the same trade-off made by
+ * checking the directory's modification time, but also catches files at the top level being edited in place.
+ */
 public class FileMount implements IWritableMount
 {
     private static final int MINIMUM_FILE_SIZE = 500;
+
+    private static final long LEDGER_VERSION = 2;
+    private static final long LEDGER_DELAY = 1000;
+
+    private static final ScheduledThreadPoolExecutor USAGE_EXECUTOR = new ScheduledThreadPoolExecutor( 1, ThreadUtils.factory( "FileMount" ) );
+
+    static
+    {
+        USAGE_EXECUTOR.setKeepAliveTime( 60, TimeUnit.SECONDS );
+        USAGE_EXECUTOR.allowCoreThreadTimeOut( true );
+    }
     private static final Set<OpenOption> READ_OPTIONS = Collections.singleton( StandardOpenOption.READ );
     private static final Set<OpenOption> WRITE_OPTIONS = Sets.newHashSet( StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING );
     private static final Set<OpenOption> APPEND_OPTIONS = Sets.newHashSet( StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.APPEND );
 
+    /**
+     * The amount of space a writable channel reserves at once. Reserving space in chunks means we only need to check
+     * the remaining space every few writes, rather than on every one.
+     *
+     * Reservations are included in {@link #usedSpace}, but are also tracked in {@link #reservedSpace}, so that they
+     * are not reported as used by {@link #getRemainingSpace()} or saved in the ledger. If another write needs space
+     * which is only held by reservations, every reservation is revoked (see {@link #hasSpace(long)}).
+     */
+    private static final long RESERVE_CHUNK = 16 * 1024;
+
     private class WritableCountingChannel implements WritableByteChannel
     {
 
         private final WritableByteChannel inner;
         long ignoredBytesLeft;
 
+        /**
+         * Space which has been added to {@link #usedSpace}, but not yet written to. This is released when the channel
+         * is closed, and is void if {@link #reservationGeneration} has changed since it was made.
+         */
+        private long reserved;
+        private int generation;
+
         WritableCountingChannel( WritableByteChannel inner, long bytesToIgnore )
         {
             this.inner = inner;
@@ -56,10 +102,41 @@ public class FileMount implements IWritableMount
                 long newBytes = -ignoredBytesLeft;
                 ignoredBytesLeft = 0;
 
-                long bytesLeft = capacity - usedSpace;
-                if( newBytes > bytesLeft ) throw new IOException( "Out of space" );
-                usedSpace += newBytes;
+                // Our reservation may have been revoked to make space for another write.
+                if( generation != reservationGeneration ) reserved = 0;
+
+                if( newBytes <= reserved )
+                {
+                    reserved -= newBytes;
+                    reservedSpace -= newBytes;
+                    markChanged();
+                    return;
+                }
+
+                newBytes -= reserved;
+                reservedSpace -= reserved;
+                reserved = 0;
+                if( !hasSpace( newBytes ) ) throw new IOException( "Out of space" );
+
+                // Reserve a little more than we need, but never more than half the remaining space, so that other
+                // channels are still able to write.
+                long reserve = Math.max( newBytes, Math.min( RESERVE_CHUNK, (capacity - usedSpace) / 2 ) );
+                usedSpace += reserve;
+                reserved = reserve - newBytes;
+                reservedSpace += reserved;
+                generation = reservationGeneration;
+                markChanged();
+            }
+        }
+
+        private void release()
+        {
+            if( reserved > 0 && generation == reservationGeneration )
+            {
+                usedSpace -= reserved;
+                reservedSpace -= reserved;
             }
+            reserved = 0;
         }
 
         @Override
@@ -71,7 +148,14 @@ public class FileMount implements IWritableMount
         @Override
         public void close() throws IOException
         {
-            inner.close();
+            try
+            {
+                inner.close();
+            }
+            finally
+            {
+                release();
+            }
         }
     }
 
@@ -134,14 +218,55 @@ public class FileMount implements IWritableMount
     }
 
     private final File rootPath;
+    private final File ledgerPath;
     private final long capacity;
-    private long usedSpace;
+    private volatile long usedSpace;
+
+    /**
+     * The space held by unused reservations of open channels, which is included in {@link #usedSpace}.
+     */
+    private volatile long reservedSpace;
+
+    /**
+     * Incremented whenever all reservations are revoked, so that channels know to discard their own.
+     */
+    private volatile int reservationGeneration;
+
+    /**
+     * A scan of this mount's used space, if the ledger was missing or out of date. Anything which reads or modifies
+     * {@link #usedSpace} must wait for this to finish.
+     */
+    private volatile Future<Long> pendingScan;
+
+    private final Object ledgerLock = new Object();
+    private boolean ledgerDirty;
 
     public FileMount( File rootPath, long capacity )
     {
         this.rootPath = rootPath;
         this.capacity = capacity + MINIMUM_FILE_SIZE;
-        usedSpace = created() ? measureUsedSpace( this.rootPath ) : MINIMUM_FILE_SIZE;
+        ledgerPath = new File( rootPath.getParentFile(), "." + rootPath.getName() + ".usage" );
+
+        if( !created() )
+        {
+            usedSpace = MINIMUM_FILE_SIZE;
+        }
+        else
+        {
+            long ledger = readLedger();
+            if( ledger >= 0 )
+            {
+                usedSpace = ledger;
+            }
+            else
+            {
+                pendingScan = USAGE_EXECUTOR.submit( () -> {
+                    long usedSpace = measureUsedSpace( rootPath );
+                    saveLedger( usedSpace );
+                    return usedSpace;
+                } );
+            }
+        }
     }
 
     // IMount implementation
@@ -231,6 +356,7 @@ public class FileMount implements IWritableMount
     public void makeDirectory( @Nonnull String path ) throws IOException
     {
         create();
+        awaitUsedSpace();
         File file = getRealPath( path );
         if( file.exists() )
         {
@@ -246,7 +372,7 @@ public class FileMount implements IWritableMount
             parent = parent.getParentFile();
         }
 
-        if( getRemainingSpace() < dirsToCreate * MINIMUM_FILE_SIZE )
+        if( !hasSpace( dirsToCreate * MINIMUM_FILE_SIZE ) )
         {
             throw new FileOperationException( path, "Out of space" );
         }
@@ -254,6 +380,7 @@ public class FileMount implements IWritableMount
         if( file.mkdirs() )
         {
             usedSpace += dirsToCreate * MINIMUM_FILE_SIZE;
+            markChanged();
         }
         else
         {
@@ -268,8 +395,19 @@ public class FileMount implements IWritableMount
 
         if( created() )
         {
+            awaitUsedSpace();
             File file = getRealPath( path );
-            if( file.exists() ) deleteRecursively( file );
+            if( file.exists() )
+            {
+                try
+                {
+                    deleteRecursively( file );
+                }
+                finally
+                {
+                    markChanged();
+                }
+            }
         }
     }
 
@@ -303,6 +441,7 @@ public class FileMount implements IWritableMount
     public WritableByteChannel openForWrite( @Nonnull String path ) throws IOException
     {
         create();
+        awaitUsedSpace();
         File file = getRealPath( path );
         if( file.exists() && file.isDirectory() ) throw new FileOperationException( path, "Cannot write to directory" );
 
@@ -310,11 +449,12 @@ public class FileMount implements IWritableMount
         {
             usedSpace -= Math.max( file.length(), MINIMUM_FILE_SIZE );
         }
-        else if( getRemainingSpace() < MINIMUM_FILE_SIZE )
+        else if( !hasSpace( MINIMUM_FILE_SIZE ) )
         {
             throw new FileOperationException( path, "Out of space" );
         }
         usedSpace += MINIMUM_FILE_SIZE;
+        markChanged();
 
         return new SeekableCountingChannel( Files.newByteChannel( file.toPath(), WRITE_OPTIONS ), MINIMUM_FILE_SIZE );
     }
@@ -328,6 +468,7 @@ public class FileMount implements IWritableMount
             throw new FileOperationException( path, "No such file" );
         }
 
+        awaitUsedSpace();
         File file = getRealPath( path );
         if( !file.exists() ) throw new FileOperationException( path, "No such file" );
         if( file.isDirectory() ) throw new FileOperationException( path, "Cannot write to directory" );
@@ -342,7 +483,28 @@ public class FileMount implements IWritableMount
     @Override
     public long getRemainingSpace()
     {
-        return Math.max( capacity - usedSpace, 0 );
+        awaitUsedSpace();
+        return Math.max( capacity - usedSpace + reservedSpace, 0 );
+    }
+
+    /**
+     * Determine whether there is space to write some more bytes. If the space is only held by other channels'
+     * reservations, these are revoked, so that a write only fails once the mount is actually full.
+     *
+     * @param bytes The number of bytes to be written.
+     * @return Whether there is enough space. When this returns {@code true}, {@code bytes} may be added to
+     * {@link #usedSpace} without exceeding the capacity.
+     */
+    private boolean hasSpace( long bytes )
+    {
+        awaitUsedSpace();
+        if( bytes <= capacity - usedSpace ) return true;
+        if( bytes > capacity - usedSpace + reservedSpace ) return false;
+
+        usedSpace -= reservedSpace;
+        reservedSpace = 0;
+        reservationGeneration++;
+        return true;
     }
 
     @Nonnull
@@ -374,6 +536,151 @@ public class FileMount implements IWritableMount
         }
     }
 
+    /**
+     * Wait for any background scan of this mount to complete.
+     */
+    private void awaitUsedSpace()
+    {
+        if( pendingScan == null ) return;
+
+        synchronized( this )
+        {
+            Future<Long> scan = pendingScan;
+            if( scan == null ) return;
+
+            boolean interrupted = false;
+            while( true )
+            {
+                try
+                {
+                    usedSpace = scan.get();
+                    break;
+                }
+                catch( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+                catch( ExecutionException e )
+                {
+                    ComputerCraft.log.error( "Error computing file size for {}", rootPath, e.getCause() );
+                    usedSpace = MINIMUM_FILE_SIZE;
+                    break;
+                }
+            }
+
+            pendingScan = null;
+            if( interrupted ) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Read the used space from the ledger.
+     *
+     * @return The used space, or {@code -1} if the ledger is missing or out of date.
+     */
+    private long readLedger()
+    {
+        if( !ledgerPath.isFile() ) return -1;
+
+        try( DataInputStream stream = new DataInputStream( Files.newInputStream( ledgerPath.toPath() ) ) )
+        {
+            if( stream.readLong() != LEDGER_VERSION ) return -1;
+            long usedSpace = stream.readLong();
+            long fingerprint = stream.readLong();
+
+            // If the directory has changed since the ledger was written, files have been changed behind our back.
+            if( fingerprint != getFingerprint( rootPath ) ) return -1;
+            return usedSpace >= MINIMUM_FILE_SIZE ? usedSpace : -1;
+        }
+        catch( IOException e )
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * Mark the used space as having changed. This deletes the ledger, and schedules it to be rewritten.
+     */
+    private void markChanged()
+    {
+        synchronized( ledgerLock )
+        {
+            if( ledgerDirty ) return;
+            ledgerDirty = true;
+
+            if( ledgerPath.exists() && !ledgerPath.delete() )
+            {
+                ComputerCraft.log.warn( "Cannot delete disk usage ledger {}", ledgerPath );
+            }
+            USAGE_EXECUTOR.schedule( this::writeLedger, LEDGER_DELAY, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    private void writeLedger()
+    {
+        synchronized( ledgerLock )
+        {
+            if( !ledgerDirty ) return;
+            ledgerDirty = false;
+            saveLedger( usedSpace - reservedSpace );
+        }
+    }
+
+    private void saveLedger( long usedSpace )
+    {
+        // The directory may have been deleted (for instance, when a computer is destroyed).
+        if( !created() ) return;
+
+        Path ledger = ledgerPath.toPath();
+        Path temp = ledger.resolveSibling( ledgerPath.getName() + ".tmp" );
+        try
+        {
+            try( DataOutputStream stream = new DataOutputStream( Files.newOutputStream( temp ) ) )
+            {
+                stream.writeLong( LEDGER_VERSION );
+                stream.writeLong( usedSpace );
+                stream.writeLong( getFingerprint( rootPath ) );
+            }
+
+            try
+            {
+                Files.move( temp, ledger, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            }
+            catch( AtomicMoveNotSupportedException e )
+            {
+                Files.move( temp, ledger, StandardCopyOption.REPLACE_EXISTING );
+            }
+        }
+        catch( IOException e )
+        {
+            ComputerCraft.log.warn( "Cannot write disk usage ledger {}", ledgerPath, e );
+        }
+    }
+
+    /**
+     * Compute a fingerprint of the top level of a directory, used to check whether it has been changed since the ledger
+     * was written.
+     *
+     * @param root The directory to fingerprint.
+     * @return The directory's fingerprint.
+     * @throws IOException If the directory could not be listed.
+     */
+    private static long getFingerprint( File root ) throws IOException
+    {
+        File[] children = root.listFiles();
+        if( children == null ) throw new IOException( "Cannot list " + root );
+
+        Arrays.sort( children );
+        long hash = root.lastModified();
+        for( File child : children )
+        {
+            hash = hash * 31 + child.getName().hashCode();
+            hash = hash * 31 + child.length();
+            hash = hash * 31 + child.lastModified();
+        }
+        return hash;
+    }
+
     private static class Visitor extends SimpleFileVisitor<Path>
     {
         long size;
@@ -24,11 +24,26 @@ import java.nio.channels.WritableByteChannel;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
-import java.util.regex.Pattern;
 
+/**
+ * A computer's filesystem, composed of multiple mounts.
+ *
+ * Read-only operations (such as {@link #exists(String)} or {@link #list(String)}) may run concurrently, while anything
+ * which modifies the filesystem or its mounts takes an exclusive lock. We also cache which mount a path belongs to, as
+ * programs often query the same paths repeatedly.
+ */
 public class FileSystem
 {
+    /**
+     * The maximum number of entries in {@link #mountCache}. The cache is simply cleared when it grows beyond this.
+     */
+    private static final int MOUNT_CACHE_SIZE = 512;
+
     /**
      * Maximum depth that {@link #copyRecursive(String, MountWrapper, String, MountWrapper, int)} will descend into.
      *
@@ -40,6 +55,13 @@ public class FileSystem
     private final FileSystemWrapperMount wrapper = new FileSystemWrapperMount( this );
     private final Map<String, MountWrapper> mounts = new HashMap<>();
 
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * A cache of sanitised paths to the mount which contains them. This is cleared whenever the mount table changes.
+     */
+    private final Map<String, MountWrapper> mountCache = new ConcurrentHashMap<>();
+
     private final HashMap<WeakReference<FileSystemWrapper<?>>, ChannelWrapper<?>> openFiles = new HashMap<>();
     private final ReferenceQueue<FileSystemWrapper<?>> openFileQueue = new ReferenceQueue<>();
 
@@ -64,7 +86,7 @@ public class FileSystem
         }
     }
 
-    public synchronized void mount( String label, String location, IMount mount ) throws FileSystemException
+    public void mount( String label, String location, IMount mount ) throws FileSystemException
     {
         if( mount == null ) throw new NullPointerException();
         location = sanitizePath( location );
@@ -72,7 +94,7 @@ public class FileSystem
         mount( new MountWrapper( label, location, mount ) );
     }
 
-    public synchronized void mountWritable( String label, String location, IWritableMount mount ) throws FileSystemException
+    public void mountWritable( String label, String location, IWritableMount mount ) throws FileSystemException
     {
         if( mount == null )
         {
@@ -86,17 +108,38 @@ public class FileSystem
         mount( new MountWrapper( label, location, mount ) );
     }
 
-    private synchronized void mount( MountWrapper wrapper )
+    private void mount( MountWrapper wrapper )
     {
-        String location = wrapper.getLocation();
-        mounts.remove( location );
-        mounts.put( location, wrapper );
+        Lock lock = this.lock.writeLock();
+        lock.lock();
+        try
+        {
+            String location = wrapper.getLocation();
+            mounts.remove( location );
+            mounts.put( location, wrapper );
+            mountCache.clear();
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
-    public synchronized void unmount( String path )
+    public void unmount( String path )
     {
-        MountWrapper mount = mounts.remove( sanitizePath( path ) );
-        if( mount == null ) return;
+        MountWrapper mount;
+        Lock lock = this.lock.writeLock();
+        lock.lock();
+        try
+        {
+            mount = mounts.remove( sanitizePath( path ) );
+            if( mount == null ) return;
+            mountCache.clear();
+        }
+        finally
+        {
+            lock.unlock();
+        }
 
         cleanup();
 
@@ -167,178 +210,367 @@ public class FileSystem
         return lastSlash >= 0 ? path.substring( lastSlash + 1 ) : path;
     }
 
-    public synchronized long getSize( String path ) throws FileSystemException
+    public long getSize( String path ) throws FileSystemException
     {
-        return getMount( sanitizePath( path ) ).getSize( sanitizePath( path ) );
+        Lock lock = this.lock.readLock();
+        lock.lock();
+        try
+        {
+            path = sanitizePath( path );
+            return getMount( path ).getSize( path );
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
-    public synchronized BasicFileAttributes getAttributes( String path ) throws FileSystemException
+    public BasicFileAttributes getAttributes( String path ) throws FileSystemException
     {
-        return getMount( sanitizePath( path ) ).getAttributes( sanitizePath( path ) );
+        Lock lock = this.lock.readLock();
+        lock.lock();
+        try
+        {
+            path = sanitizePath( path );
+            return getMount( path ).getAttributes( path );
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
-    public synchronized String[] list( String path ) throws FileSystemException
+    public String[] list( String path ) throws FileSystemException
     {
-        path = sanitizePath( path );
-        MountWrapper mount = getMount( path );
+        Lock lock = this.lock.readLock();
+        lock.lock();
+        try
+        {
+            path = sanitizePath( path );
+            MountWrapper mount = getMount( path );
 
-        // Gets a list of the files in the mount
-        List<String> list = new ArrayList<>();
-        mount.list( path, list );
+            // Gets a list of the files in the mount
+            List<String> list = new ArrayList<>();
+            mount.list( path, list );
 
-        // Add any mounts that are mounted at this location
-        for( MountWrapper otherMount : mounts.values() )
-        {
-            if( getDirectory( otherMount.getLocation() ).equals( path ) )
+            // Add any mounts that are mounted at this location
+            for( MountWrapper otherMount : mounts.values() )
             {
-                list.add( getName( otherMount.getLocation() ) );
+                if( getDirectory( otherMount.getLocation() ).equals( path ) )
+                {
+                    list.add( getName( otherMount.getLocation() ) );
+                }
             }
-        }
 
-        // Return list
-        String[] array = new String[list.size()];
-        list.toArray( array );
-        Arrays.sort( array );
-        return array;
+            // Return list
+            String[] array = new String[list.size()];
+            list.toArray( array );
+            Arrays.sort( array );
+            return array;
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
-    private void findIn( String dir, List<String> matches, Pattern wildPattern ) throws FileSystemException
+    /**
+     * Find all files matching a glob, walking the pattern one path segment at a time. We never descend into a
+     * directory unless its name matches the corresponding segment.
+     *
+     * @param dir      The directory to search from.
+     * @param segments The segments of the glob.
+     * @param index    The index of the segment to match against the children of {@code dir}.
+     * @param matches  The list to add matching paths to.
+     * @throws FileSystemException If listing a directory failed.
+     */
+    private void findIn( String dir, String[] segments, int index, List<String> matches ) throws FileSystemException
     {
-        String[] list = list( dir );
-        for( String entry : list )
+        String segment = segments[index];
+        boolean last = index == segments.length - 1;
+
+        if( segment.indexOf( '*' ) == -1 )
+        {
+            // No wildcard, so we only need to check this one child. The underlying file system may be case-insensitive,
+            // so once we know something exists, we also check the directory contains an entry with exactly this name.
+            String entryPath = dir.isEmpty() ? segment : dir + "/" + segment;
+            if( !exists( entryPath ) || Arrays.binarySearch( list( dir ), segment ) < 0 ) return;
+
+            if( last )
+            {
+                matches.add( entryPath );
+            }
+            else if( isDir( entryPath ) )
+            {
+                findIn( entryPath, segments, index + 1, matches );
+            }
+            return;
+        }
+
+        for( String entry : list( dir ) )
         {
+            if( !globMatches( segment, entry ) ) continue;
+
             String entryPath = dir.isEmpty() ? entry : dir + "/" + entry;
-            if( wildPattern.matcher( entryPath ).matches() )
+            if( last )
             {
                 matches.add( entryPath );
             }
-            if( isDir( entryPath ) )
+            else if( isDir( entryPath ) )
             {
-                findIn( entryPath, matches, wildPattern );
+                findIn( entryPath, segments, index + 1, matches );
             }
         }
     }
 
-    public synchronized String[] find( String wildPath ) throws FileSystemException
-    {
-        // Match all the files on the system
-        wildPath = sanitizePath( wildPath, true );
+    /**
+     * Determine whether a name matches a single segment of a glob, where {@code *} matches any number of characters.
+     *
+     * @param glob The glob segment to match against.
+     * @param name The file name to check.
+     * @return Whether this name matches.
+     */
+    static boolean globMatches( String glob, String name )
+    {
+        int star = glob.indexOf( '*' );
+        if( star == -1 ) return glob.equals( name );
+
+        // Check the text before the first and after the last star.
+        int lastStar = glob.lastIndexOf( '*' );
+        int suffixLength = glob.length() - lastStar - 1;
+        if( name.length() < star + suffixLength ) return false;
+        if( !name.regionMatches( 0, glob, 0, star ) ) return false;
+        if( !name.regionMatches( name.length() - suffixLength, glob, lastStar + 1, suffixLength ) ) return false;
+
+        // Then greedily find each fragment between stars in order.
+        int position = star;
+        int end = name.length() - suffixLength;
+        while( star < lastStar )
+        {
+            int next = glob.indexOf( '*', star + 1 );
+            int length = next - star - 1;
+            if( length > 0 )
+            {
+                int found = indexOf( name, position, end, glob, star + 1, length );
+                if( found < 0 ) return false;
+                position = found + length;
+            }
+            star = next;
+        }
+
+        return true;
+    }
 
-        // If we don't have a wildcard at all just check the file exists
-        int starIndex = wildPath.indexOf( '*' );
-        if( starIndex == -1 )
+    private static int indexOf( String haystack, int start, int end, String needle, int needleOffset, int needleLength )
+    {
+        for( int i = start; i <= end - needleLength; i++ )
         {
-            return exists( wildPath ) ? new String[] { wildPath } : new String[0];
+            if( haystack.regionMatches( i, needle, needleOffset, needleLength ) ) return i;
         }
+        return -1;
+    }
 
-        // Find the all non-wildcarded directories. For instance foo/bar/baz* -> foo/bar
-        int prevDir = wildPath.substring( 0, starIndex ).lastIndexOf( '/' );
-        String startDir = prevDir == -1 ? "" : wildPath.substring( 0, prevDir );
+    public String[] find( String wildPath ) throws FileSystemException
+    {
+        Lock lock = this.lock.readLock();
+        lock.lock();
+        try
+        {
+            // Match all the files on the system
+            wildPath = sanitizePath( wildPath, true );
 
-        // If this isn't a directory then just abort
-        if( !isDir( startDir ) ) return new String[0];
+            // If we don't have a wildcard at all just check the file exists
+            int starIndex = wildPath.indexOf( '*' );
+            if( starIndex == -1 )
+            {
+                return exists( wildPath ) ? new String[] { wildPath } : new String[0];
+            }
 
-        // Scan as normal, starting from this directory
-        Pattern wildPattern = Pattern.compile( "^\\Q" + wildPath.replaceAll( "\\*", "\\\\E[^\\\\/]*\\\\Q" ) + "\\E$" );
-        List<String> matches = new ArrayList<>();
-        findIn( startDir, matches, wildPattern );
+            // Find the all non-wildcarded directories. For instance foo/bar/baz* -> foo/bar
+            int prevDir = wildPath.substring( 0, starIndex ).lastIndexOf( '/' );
+            String startDir = prevDir == -1 ? "" : wildPath.substring( 0, prevDir );
 
-        // Return matches
-        String[] array = new String[matches.size()];
-        matches.toArray( array );
-        return array;
-    }
+            // If this isn't a directory then just abort
+            if( !isDir( startDir ) ) return new String[0];
 
-    public synchronized boolean exists( String path ) throws FileSystemException
-    {
-        path = sanitizePath( path );
-        MountWrapper mount = getMount( path );
-        return mount.exists( path );
-    }
+            // Then match the remaining segments, starting from this directory
+            String[] segments = wildPath.substring( prevDir + 1 ).split( "/" );
+            List<String> matches = new ArrayList<>();
+            findIn( startDir, segments, 0, matches );
 
-    public synchronized boolean isDir( String path ) throws FileSystemException
-    {
-        path = sanitizePath( path );
-        MountWrapper mount = getMount( path );
-        return mount.isDirectory( path );
+            // Return matches
+            String[] array = new String[matches.size()];
+            matches.toArray( array );
+            return array;
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
-    public synchronized boolean isReadOnly( String path ) throws FileSystemException
+    public boolean exists( String path ) throws FileSystemException
     {
-        path = sanitizePath( path );
-        MountWrapper mount = getMount( path );
-        return mount.isReadOnly( path );
+        Lock lock = this.lock.readLock();
+        lock.lock();
+        try
+        {
+            path = sanitizePath( path );
+            MountWrapper mount = getMount( path );
+            return mount.exists( path );
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
-    public synchronized String getMountLabel( String path ) throws FileSystemException
+    public boolean isDir( String path ) throws FileSystemException
     {
-        path = sanitizePath( path );
-        MountWrapper mount = getMount( path );
-        return mount.getLabel();
+        Lock lock = this.lock.readLock();
+        lock.lock();
+        try
+        {
+            path = sanitizePath( path );
+            MountWrapper mount = getMount( path );
+            return mount.isDirectory( path );
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
-    public synchronized void makeDir( String path ) throws FileSystemException
+    public boolean isReadOnly( String path ) throws FileSystemException
     {
-        path = sanitizePath( path );
-        MountWrapper mount = getMount( path );
-        mount.makeDirectory( path );
+        Lock lock = this.lock.readLock();
+        lock.lock();
+        try
+        {
+            path = sanitizePath( path );
+            MountWrapper mount = getMount( path );
+            return mount.isReadOnly( path );
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
-    public synchronized void delete( String path ) throws FileSystemException
+    public String getMountLabel( String path ) throws FileSystemException
     {
-        path = sanitizePath( path );
-        MountWrapper mount = getMount( path );
-        mount.delete( path );
+        Lock lock = this.lock.readLock();
+        lock.lock();
+        try
+        {
+            path = sanitizePath( path );
+            MountWrapper mount = getMount( path );
+            return mount.getLabel();
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
-    public synchronized void move( String sourcePath, String destPath ) throws FileSystemException
+    public void makeDir( String path ) throws FileSystemException
     {
-        sourcePath = sanitizePath( sourcePath );
-        destPath = sanitizePath( destPath );
-        if( isReadOnly( sourcePath ) || isReadOnly( destPath ) )
+        Lock lock = this.lock.writeLock();
+        lock.lock();
+        try
         {
-            throw new FileSystemException( "Access denied" );
+            path = sanitizePath( path );
+            MountWrapper mount = getMount( path );
+            mount.makeDirectory( path );
         }
-        if( !exists( sourcePath ) )
+        finally
         {
-            throw new FileSystemException( "No such file" );
+            lock.unlock();
         }
-        if( exists( destPath ) )
+    }
+
+    public void delete( String path ) throws FileSystemException
+    {
+        Lock lock = this.lock.writeLock();
+        lock.lock();
+        try
         {
-            throw new FileSystemException( "File exists" );
+            path = sanitizePath( path );
+            MountWrapper mount = getMount( path );
+            mount.delete( path );
         }
-        if( contains( sourcePath, destPath ) )
+        finally
         {
-            throw new FileSystemException( "Can't move a directory inside itself" );
+            lock.unlock();
         }
-        copy( sourcePath, destPath );
-        delete( sourcePath );
     }
 
-    public synchronized void copy( String sourcePath, String destPath ) throws FileSystemException
+    public void move( String sourcePath, String destPath ) throws FileSystemException
     {
-        sourcePath = sanitizePath( sourcePath );
-        destPath = sanitizePath( destPath );
-        if( isReadOnly( destPath ) )
+        Lock lock = this.lock.writeLock();
+        lock.lock();
+        try
         {
-            throw new FileSystemException( "/" + destPath + ": Access denied" );
+            sourcePath = sanitizePath( sourcePath );
+            destPath = sanitizePath( destPath );
+            if( isReadOnly( sourcePath ) || isReadOnly( destPath ) )
+            {
+                throw new FileSystemException( "Access denied" );
+            }
+            if( !exists( sourcePath ) )
+            {
+                throw new FileSystemException( "No such file" );
+            }
+            if( exists( destPath ) )
+            {
+                throw new FileSystemException( "File exists" );
+            }
+            if( contains( sourcePath, destPath ) )
+            {
+                throw new FileSystemException( "Can't move a directory inside itself" );
+            }
+            copy( sourcePath, destPath );
+            delete( sourcePath );
         }
-        if( !exists( sourcePath ) )
+        finally
         {
-            throw new FileSystemException( "/" + sourcePath + ": No such file" );
+            lock.unlock();
         }
-        if( exists( destPath ) )
+    }
+
+    public void copy( String sourcePath, String destPath ) throws FileSystemException
+    {
+        Lock lock = this.lock.writeLock();
+        lock.lock();
+        try
         {
-            throw new FileSystemException( "/" + destPath + ": File exists" );
+            sourcePath = sanitizePath( sourcePath );
+            destPath = sanitizePath( destPath );
+            if( isReadOnly( destPath ) )
+            {
+                throw new FileSystemException( "/" + destPath + ": Access denied" );
+            }
+            if( !exists( sourcePath ) )
+            {
+                throw new FileSystemException( "/" + sourcePath + ": No such file" );
+            }
+            if( exists( destPath ) )
+            {
+                throw new FileSystemException( "/" + destPath + ": File exists" );
+            }
+            if( contains( sourcePath, destPath ) )
+            {
+                throw new FileSystemException( "/" + sourcePath + ": Can't copy a directory inside itself" );
+            }
+            copyRecursive( sourcePath, getMount( sourcePath ), destPath, getMount( destPath ), 0 );
         }
-        if( contains( sourcePath, destPath ) )
+        finally
         {
-            throw new FileSystemException( "/" + sourcePath + ": Can't copy a directory inside itself" );
+            lock.unlock();
         }
-        copyRecursive( sourcePath, getMount( sourcePath ), destPath, getMount( destPath ), 0 );
     }
 
-    private synchronized void copyRecursive( String sourcePath, MountWrapper sourceMount, String destinationPath, MountWrapper destinationMount, int depth ) throws FileSystemException
+    private void copyRecursive( String sourcePath, MountWrapper sourceMount, String destinationPath, MountWrapper destinationMount, int depth ) throws FileSystemException
     {
         if( !sourceMount.exists( sourcePath ) ) return;
         if( depth >= MAX_COPY_DEPTH ) throw new FileSystemException( "Too many directories to copy" );
@@ -393,7 +625,7 @@ public class FileSystem
         }
     }
 
-    private synchronized <T extends Closeable> FileSystemWrapper<T> openFile( @Nonnull MountWrapper mount, @Nonnull Channel channel, @Nonnull T file ) throws FileSystemException
+    private <T extends Closeable> FileSystemWrapper<T> openFile( @Nonnull MountWrapper mount, @Nonnull Channel channel, @Nonnull T file ) throws FileSystemException
     {
         synchronized( openFiles )
         {
@@ -420,53 +652,97 @@ public class FileSystem
         }
     }
 
-    public synchronized <T extends Closeable> FileSystemWrapper<T> openForRead( String path, Function<ReadableByteChannel, T> open ) throws FileSystemException
+    public <T extends Closeable> FileSystemWrapper<T> openForRead( String path, Function<ReadableByteChannel, T> open ) throws FileSystemException
     {
-        cleanup();
+        Lock lock = this.lock.readLock();
+        lock.lock();
+        try
+        {
+            cleanup();
 
-        path = sanitizePath( path );
-        MountWrapper mount = getMount( path );
-        ReadableByteChannel channel = mount.openForRead( path );
-        return channel != null ? openFile( mount, channel, open.apply( channel ) ) : null;
+            path = sanitizePath( path );
+            MountWrapper mount = getMount( path );
+            ReadableByteChannel channel = mount.openForRead( path );
+            return channel != null ? openFile( mount, channel, open.apply( channel ) ) : null;
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
-    public synchronized <T extends Closeable> FileSystemWrapper<T> openForWrite( String path, boolean append, Function<WritableByteChannel, T> open ) throws FileSystemException
+    public <T extends Closeable> FileSystemWrapper<T> openForWrite( String path, boolean append, Function<WritableByteChannel, T> open ) throws FileSystemException
     {
-        cleanup();
+        Lock lock = this.lock.writeLock();
+        lock.lock();
+        try
+        {
+            cleanup();
 
-        path = sanitizePath( path );
-        MountWrapper mount = getMount( path );
-        WritableByteChannel channel = append ? mount.openForAppend( path ) : mount.openForWrite( path );
-        return channel != null ? openFile( mount, channel, open.apply( channel ) ) : null;
+            path = sanitizePath( path );
+            MountWrapper mount = getMount( path );
+            WritableByteChannel channel = append ? mount.openForAppend( path ) : mount.openForWrite( path );
+            return channel != null ? openFile( mount, channel, open.apply( channel ) ) : null;
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
-    public synchronized long getFreeSpace( String path ) throws FileSystemException
+    public long getFreeSpace( String path ) throws FileSystemException
     {
-        path = sanitizePath( path );
-        MountWrapper mount = getMount( path );
-        return mount.getFreeSpace();
+        Lock lock = this.lock.readLock();
+        lock.lock();
+        try
+        {
+            path = sanitizePath( path );
+            MountWrapper mount = getMount( path );
+            return mount.getFreeSpace();
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
     @Nonnull
-    public synchronized OptionalLong getCapacity( String path ) throws FileSystemException
+    public OptionalLong getCapacity( String path ) throws FileSystemException
     {
-        path = sanitizePath( path );
-        MountWrapper mount = getMount( path );
-        return mount.getCapacity();
+        Lock lock = this.lock.readLock();
+        lock.lock();
+        try
+        {
+            path = sanitizePath( path );
+            MountWrapper mount = getMount( path );
+            return mount.getCapacity();
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
-    private synchronized MountWrapper getMount( String path ) throws FileSystemException
+    /**
+     * Find the deepest mount which contains a given path. This should be called with (at least) the read lock held.
+     *
+     * @param path The sanitised path to look up.
+     * @return The mount containing this path.
+     * @throws FileSystemException If no mount contains this path.
+     */
+    private MountWrapper getMount( String path ) throws FileSystemException
     {
-        // Return the deepest mount that contains a given path
-        Iterator<MountWrapper> it = mounts.values().iterator();
-        MountWrapper match = null;
+        MountWrapper match = mountCache.get( path );
+        if( match != null ) return match;
+
+        String lowerPath = path.toLowerCase( Locale.ROOT );
         int matchLength = 999;
-        while( it.hasNext() )
+        for( MountWrapper mount : mounts.values() )
         {
-            MountWrapper mount = it.next();
-            if( contains( mount.getLocation(), path ) )
+            String location = mount.getLocation();
+            if( containsSanitised( location.toLowerCase( Locale.ROOT ), lowerPath ) )
             {
-                int len = toLocal( path, mount.getLocation() ).length();
+                int len = localLength( path, location );
                 if( match == null || len < matchLength )
                 {
                     match = mount;
@@ -478,9 +754,25 @@ public class FileSystem
         {
             throw new FileSystemException( "/" + path + ": Invalid Path" );
         }
+
+        if( mountCache.size() >= MOUNT_CACHE_SIZE ) mountCache.clear();
+        mountCache.put( path, match );
         return match;
     }
 
+    /**
+     * Get the length of a path, relative to a mount's location.
+     *
+     * @param path     The sanitised path.
+     * @param location The sanitised location of a mount containing this path.
+     * @return The length of the path within this mount, equivalent to {@code toLocal( path, location ).length()}.
+     */
+    private static int localLength( String path, String location )
+    {
+        int length = path.length() - location.length();
+        return length > 0 && path.charAt( location.length() ) == '/' ? length - 1 : length;
+    }
+
     public IFileSystem getMountWrapper()
     {
         return wrapper;
@@ -491,8 +783,6 @@ public class FileSystem
         return sanitizePath( path, false );
     }
 
-    private static final Pattern threeDotsPattern = Pattern.compile( "^\\.{3,}$" );
-
     public static String sanitizePath( String path, boolean allowWildcards )
     {
         // Allow windowsy slashes
@@ -519,7 +809,7 @@ public class FileSystem
         Stack<String> outputParts = new Stack<>();
         for( String part : parts )
         {
-            if( part.isEmpty() || part.equals( "." ) || threeDotsPattern.matcher( part ).matches() )
+            if( part.isEmpty() || part.equals( "." ) || isThreeDots( part ) )
             {
                 // . is redundant
                 // ... and more are treated as .
@@ -574,11 +864,32 @@ public class FileSystem
         return result.toString();
     }
 
+    /**
+     * Determine whether a path component consists of three or more dots, which is treated the same as {@code .}.
+     *
+     * @param part The path component.
+     * @return Whether this component is just dots.
+     */
+    private static boolean isThreeDots( String part )
+    {
+        if( part.length() < 3 ) return false;
+        for( int i = 0; i < part.length(); i++ )
+        {
+            if( part.charAt( i ) != '.' ) return false;
+        }
+        return true;
+    }
+
     public static boolean contains( String pathA, String pathB )
     {
-        pathA = sanitizePath( pathA ).toLowerCase( Locale.ROOT );
-        pathB = sanitizePath( pathB ).toLowerCase( Locale.ROOT );
+        return containsSanitised(
+            sanitizePath( pathA ).toLowerCase( Locale.ROOT ),
+            sanitizePath( pathB ).toLowerCase( Locale.ROOT )
+        );
+    }
 
+    private static boolean containsSanitised( String pathA, String pathB )
+    {
         if( pathB.equals( ".." ) )
         {
             return false;
@@ -0,0 +1,115 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.lua;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * A read-only {@link Map} view of a Lua list, whose keys are the numbers {@code 1..n}.
+ *
+ * This is used by {@link CobaltLuaMachine#toObject} instead of a {@link HashMap}, as list-like tables are by far the
+ * most common kind of table passed to Java, and storing them as an array avoids boxing and hashing each key.
+ *
+ * Entries may be {@code null} if the Lua value could not be converted, in which case they are treated as absent.
+ */
+final class ArrayTable extends AbstractMap<Object, Object>
+{
+    private final Object[] values;
+    private int size = -1;
+    private Set<Entry<Object, Object>> entries;
+
+    ArrayTable( Object[] values )
+    {
+        this.values = values;
+    }
+
+    private int index( @Nullable Object key )
+    {
+        if( !(key instanceof Number) ) return -1;
+
+        double value = ((Number) key).doubleValue();
+        int index = (int) value;
+        return index == value && index >= 1 && index <= values.length ? index - 1 : -1;
+    }
+
+    @Override
+    public Object get( Object key )
+    {
+        int index = index( key );
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey( Object key )
+    {
+        return get( key ) != null;
+    }
+
+    @Override
+    public int size()
+    {
+        int size = this.size;
+        if( size >= 0 ) return size;
+
+        size = 0;
+        for( Object value : values )
+        {
+            if( value != null ) size++;
+        }
+        return this.size = size;
+    }
+
+    @Nonnull
+    @Override
+    public Set<Entry<Object, Object>> entrySet()
+    {
+        Set<Entry<Object, Object>> entries = this.entries;
+        return entries != null ? entries : (this.entries = new EntrySet());
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<Object, Object>>
+    {
+        @Override
+        public int size()
+        {
+            return ArrayTable.this.size();
+        }
+
+        @Nonnull
+        @Override
+        public Iterator<Entry<Object, Object>> iterator()
+        {
+            return new Iterator<Entry<Object, Object>>()
+            {
+                private int index = advance( 0 );
+
+                private int advance( int index )
+                {
+                    while( index < values.length && values[index] == null ) index++;
+                    return index;
+                }
+
+                @Override
+                public boolean hasNext()
+                {
+                    return index < values.length;
+                }
+
+                @Override
+                public Entry<Object, Object> next()
+                {
+                    if( index >= values.length ) throw new NoSuchElementException();
+
+                    Entry<Object, Object> entry = new SimpleImmutableEntry<>( (double) (index + 1), values[index] );
+                    index = advance( index + 1 );
+                    return entry;
+                }
+            };
+        }
+    }
+}
@@ -29,7 +29,9 @@ import javax.annotation.Nullable;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -47,6 +49,18 @@ public class CobaltLuaMachine implements ILuaMachine
         ThreadUtils.factory( "Coroutine" )
     );
 
+    /**
+     * Runs each coroutine on its own virtual thread. This is {@code null} if the JVM does not support virtual threads.
+     *
+     * Virtual threads are not pooled, as they are cheap to create and are unmounted from their carrier thread while
+     * the coroutine is suspended.
+     *
+     * @see ComputerCraft#virtualThreadCoroutines
+     */
+    private static final Executor VIRTUAL_COROUTINES = createVirtualExecutor();
+
+    private static boolean warnedVirtualThreads = false;
+
     private static final LuaMethod FUNCTION_METHOD = ( target, context, args ) -> ((ILuaFunction) target).call( args );
 
     private final Computer computer;
@@ -67,13 +81,15 @@ public class CobaltLuaMachine implements ILuaMachine
         context = new LuaContext( computer );
         debug = new TimeoutDebugHandler();
 
+        Executor coroutines = getCoroutineExecutor();
+
         // Create an environment to run in
         LuaState state = this.state = LuaState.builder()
             .resourceManipulator( new VoidResourceManipulator() )
             .debug( debug )
             .coroutineExecutor( command -> {
                 Tracking.addValue( this.computer, TrackingField.COROUTINES_CREATED, 1 );
-                COROUTINES.execute( () -> {
+                coroutines.execute( () -> {
                     try
                     {
                         command.run();
@@ -115,6 +131,28 @@ public class CobaltLuaMachine implements ILuaMachine
         }
     }
 
+    private static Executor getCoroutineExecutor()
+    {
+        if( !ComputerCraft.virtualThreadCoroutines ) return COROUTINES;
+        if( VIRTUAL_COROUTINES != null ) return VIRTUAL_COROUTINES;
+
+        if( !warnedVirtualThreads )
+        {
+            warnedVirtualThreads = true;
+            ComputerCraft.log.warn( "Virtual threads are not supported on this JVM, using platform threads for coroutines instead." );
+        }
+        return COROUTINES;
+    }
+
+    @Nullable
+    private static Executor createVirtualExecutor()
+    {
+        ThreadFactory factory = ThreadUtils.virtualFactory( "Coroutine" );
+        if( factory == null ) return null;
+
+        return command -> factory.newThread( command ).start();
+    }
+
     @Override
     public void addAPI( @Nonnull ILuaAPI api )
     {
@@ -230,29 +268,60 @@ public class CobaltLuaMachine implements ILuaMachine
             ? Objects.requireNonNull( ((IDynamicLuaObject) object).getMethodNames(), "Methods cannot be null" )
             : LuaMethod.EMPTY_METHODS;
 
-        LuaTable table = new LuaTable();
-        for( int i = 0; i < dynamicMethods.length; i++ )
+        // Look up the (cached) methods of every object up front, so we can size the table correctly.
+        LuaMethodTable methods = LuaMethodTable.of( object.getClass() );
+        int size = dynamicMethods.length + methods.size();
+
+        List<Object> extras = null;
+        if( object instanceof ObjectSource )
         {
-            String method = dynamicMethods[i];
-            table.rawset( method, new ResultInterpreterFunction( this, LuaMethod.DYNAMIC.get( i ), object, context, method ) );
+            extras = new ArrayList<>();
+            for( Object extra : ((ObjectSource) object).getExtra() )
+            {
+                extras.add( extra );
+                size += LuaMethodTable.of( extra.getClass() ).size();
+            }
         }
 
-        ObjectSource.allMethods( LuaMethod.GENERATOR, object, ( instance, method ) ->
-            table.rawset( method.getName(), method.nonYielding()
-                ? new BasicFunction( this, method.getMethod(), instance, context, method.getName() )
-                : new ResultInterpreterFunction( this, method.getMethod(), instance, context, method.getName() ) ) );
+        if( size == 0 ) return null;
 
-        try
+        LuaTable table = new LuaTable( 0, size );
+        for( int i = 0; i < dynamicMethods.length; i++ )
         {
-            if( table.keyCount() == 0 ) return null;
+            String method = dynamicMethods[i];
+            table.rawset( method, new ResultInterpreterFunction( this, LuaMethod.DYNAMIC.get( i ), object, context, method ) );
         }
-        catch( LuaError ignored )
+
+        methods.bind( table, this, object, context );
+        if( extras != null )
         {
+            for( Object extra : extras ) LuaMethodTable.of( extra.getClass() ).bind( table, this, extra, context );
         }
 
         return table;
     }
 
+    /**
+     * Determine whether a Java value maps to a Lua value which cannot contain other values, and so does not need to be
+     * tracked when converting.
+     *
+     * @param object The value to check.
+     * @return Whether this is a primitive value.
+     */
+    private static boolean isPrimitive( @Nullable Object object )
+    {
+        return object == null || object instanceof Number || object instanceof Boolean || object instanceof String
+            || object instanceof byte[] || object instanceof ByteBuffer || object instanceof OwnedBytes;
+    }
+
+    /**
+     * Convert a Java value to a Lua one.
+     *
+     * @param object The value to convert.
+     * @param values Java values which have already been converted, used to preserve cycles and shared references. This
+     *               may be {@code null}, in which case it will only be created once we reach a nested table.
+     * @return The converted value.
+     */
     @Nonnull
     private LuaValue toValue( @Nullable Object object, @Nullable Map<Object, LuaValue> values )
     {
@@ -264,6 +333,7 @@ public class CobaltLuaMachine implements ILuaMachine
         {
             return valueOf( Arrays.copyOf( b, b.length ) );
         }
+        if( object instanceof OwnedBytes b ) return valueOf( b.bytes() );
         if( object instanceof ByteBuffer b )
         {
             byte[] bytes = new byte[b.remaining()];
@@ -271,9 +341,11 @@ public class CobaltLuaMachine implements ILuaMachine
             return valueOf( bytes );
         }
 
-        if( values == null ) values = new IdentityHashMap<>( 1 );
-        LuaValue result = values.get( object );
-        if( result != null ) return result;
+        if( values != null )
+        {
+            LuaValue result = values.get( object );
+            if( result != null ) return result;
+        }
 
         if( object instanceof ILuaFunction )
         {
@@ -284,19 +356,25 @@ public class CobaltLuaMachine implements ILuaMachine
         {
             LuaValue wrapped = wrapLuaObject( object );
             if( wrapped == null ) wrapped = new LuaTable();
-            values.put( object, wrapped );
+            if( values != null ) values.put( object, wrapped );
             return wrapped;
         }
 
         if( object instanceof Map )
         {
             LuaTable table = new LuaTable();
-            values.put( object, table );
+            if( values != null ) values.put( object, table );
 
             for( Map.Entry<?, ?> pair : ((Map<?, ?>) object).entrySet() )
             {
-                LuaValue key = toValue( pair.getKey(), values );
-                LuaValue value = toValue( pair.getValue(), values );
+                Object keyObject = pair.getKey(), valueObject = pair.getValue();
+                if( values == null && (!isPrimitive( keyObject ) || !isPrimitive( valueObject )) )
+                {
+                    values = trackValue( object, table );
+                }
+
+                LuaValue key = toValue( keyObject, values );
+                LuaValue value = toValue( valueObject, values );
                 if( !key.isNil() && !value.isNil() ) table.rawset( key, value );
             }
             return table;
@@ -305,24 +383,33 @@ public class CobaltLuaMachine implements ILuaMachine
         if( object instanceof Collection<?> objects )
         {
             LuaTable table = new LuaTable( objects.size(), 0 );
-            values.put( object, table );
+            if( values != null ) values.put( object, table );
             int i = 0;
-            for( Object child : objects ) table.rawset( ++i, toValue( child, values ) );
+            for( Object child : objects )
+            {
+                if( values == null && !isPrimitive( child ) ) values = trackValue( object, table );
+                table.rawset( ++i, toValue( child, values ) );
+            }
             return table;
         }
 
         if( object instanceof Object[] objects )
         {
             LuaTable table = new LuaTable( objects.length, 0 );
-            values.put( object, table );
-            for( int i = 0; i < objects.length; i++ ) table.rawset( i + 1, toValue( objects[i], values ) );
+            if( values != null ) values.put( object, table );
+            for( int i = 0; i < objects.length; i++ )
+            {
+                Object child = objects[i];
+                if( values == null && !isPrimitive( child ) ) values = trackValue( object, table );
+                table.rawset( i + 1, toValue( child, values ) );
+            }
             return table;
         }
 
         LuaTable wrapped = wrapLuaObject( object );
         if( wrapped != null )
         {
-            values.put( object, wrapped );
+            if( values != null ) values.put( object, wrapped );
             return wrapped;
         }
 
@@ -333,12 +420,26 @@ public class CobaltLuaMachine implements ILuaMachine
         return Constants.NIL;
     }
 
+    private static Map<Object, LuaValue> trackValue( Object object, LuaValue value )
+    {
+        Map<Object, LuaValue> values = new IdentityHashMap<>( 4 );
+        values.put( object, value );
+        return values;
+    }
+
     Varargs toValues( Object[] objects )
     {
         if( objects == null || objects.length == 0 ) return Constants.NONE;
         if( objects.length == 1 ) return toValue( objects[0], null );
 
-        Map<Object, LuaValue> result = new IdentityHashMap<>( 0 );
+        // We only need to share converted values when multiple values may reference the same object.
+        int containers = 0;
+        for( Object object : objects )
+        {
+            if( !isPrimitive( object ) ) containers++;
+        }
+
+        Map<Object, LuaValue> result = containers > 1 ? new IdentityHashMap<>( containers ) : null;
         LuaValue[] values = new LuaValue[objects.length];
         for( int i = 0; i < values.length; i++ )
         {
@@ -348,7 +449,16 @@ public class CobaltLuaMachine implements ILuaMachine
         return varargsOf( values );
     }
 
-    static Object toObject( LuaValue value, Map<LuaValue, Object> objects )
+    /**
+     * Convert a Lua value to a Java one.
+     *
+     * @param value   The value to convert.
+     * @param objects Lua tables which have already been converted, used to preserve cycles. This may be {@code null},
+     *                in which case it will only be created once we reach a nested table.
+     * @return The converted value.
+     */
+    @Nullable
+    static Object toObject( LuaValue value, @Nullable Map<LuaValue, Object> objects )
     {
         switch( value.type() )
         {
@@ -364,22 +474,32 @@ public class CobaltLuaMachine implements ILuaMachine
                 return value.toString();
             case Constants.TTABLE:
             {
-                // Table:
-                // Start remembering stuff
-                if( objects == null )
-                {
-                    objects = new IdentityHashMap<>( 1 );
-                }
-                else
+                if( objects != null )
                 {
                     Object existing = objects.get( value );
                     if( existing != null ) return existing;
                 }
-                Map<Object, Object> table = new HashMap<>();
-                objects.put( value, table );
 
                 LuaTable luaTable = (LuaTable) value;
 
+                // Tables which are just a list of values (the common case) can be stored as an array.
+                Object[] array = toArray( luaTable );
+                if( array != null )
+                {
+                    Map<Object, Object> table = new ArrayTable( array );
+                    if( objects != null ) objects.put( value, table );
+                    for( int i = 0; i < array.length; i++ )
+                    {
+                        LuaValue child = (LuaValue) array[i];
+                        if( objects == null && child.type() == Constants.TTABLE ) objects = trackObject( value, table );
+                        array[i] = toObject( child, objects );
+                    }
+                    return table;
+                }
+
+                Map<Object, Object> table = new HashMap<>();
+                if( objects != null ) objects.put( value, table );
+
                 // Convert all keys
                 LuaValue k = Constants.NIL;
                 while( true )
@@ -397,6 +517,11 @@ public class CobaltLuaMachine implements ILuaMachine
                     if( k.isNil() ) break;
 
                     LuaValue v = keyValue.arg( 2 );
+                    if( objects == null && (k.type() == Constants.TTABLE || v.type() == Constants.TTABLE) )
+                    {
+                        objects = trackObject( value, table );
+                    }
+
                     Object keyObject = toObject( k, objects );
                     Object valueObject = toObject( v, objects );
                     if( keyObject != null && valueObject != null )
@@ -411,6 +536,44 @@ public class CobaltLuaMachine implements ILuaMachine
         }
     }
 
+    private static Map<LuaValue, Object> trackObject( LuaValue value, Object object )
+    {
+        Map<LuaValue, Object> objects = new IdentityHashMap<>( 4 );
+        objects.put( value, object );
+        return objects;
+    }
+
+    /**
+     * Get the values of a table if its keys are exactly {@code 1..n}.
+     *
+     * @param table The table to convert.
+     * @return The table's values (as {@link LuaValue}s), or {@code null} if this table is not a list.
+     */
+    @Nullable
+    private static Object[] toArray( LuaTable table )
+    {
+        int length = table.length();
+        if( length <= 0 ) return null;
+
+        try
+        {
+            if( table.keyCount() != length ) return null;
+        }
+        catch( LuaError e )
+        {
+            return null;
+        }
+
+        Object[] values = new Object[length];
+        for( int i = 0; i < length; i++ )
+        {
+            LuaValue child = table.rawget( i + 1 );
+            if( child.isNil() ) return null;
+            values[i] = child;
+        }
+        return values;
+    }
+
     static Object[] toObjects( Varargs values )
     {
         int count = values.count();
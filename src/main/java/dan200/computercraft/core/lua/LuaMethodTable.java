@@ -0,0 +1,83 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.lua;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import dan200.computercraft.api.lua.ILuaContext;
+import dan200.computercraft.core.asm.LuaMethod;
+import dan200.computercraft.core.asm.NamedMethod;
+import org.squiddev.cobalt.LuaString;
+import org.squiddev.cobalt.LuaTable;
+
+import java.util.List;
+
+/**
+ * The Lua methods of a class, prepared so they can be quickly bound to an instance of that class.
+ *
+ * This is derived from {@link LuaMethod#GENERATOR}, but additionally stores each method's name as a {@link LuaString},
+ * so wrapping an object only needs to allocate the table and its functions.
+ */
+final class LuaMethodTable
+{
+    private static final LoadingCache<Class<?>, LuaMethodTable> cache = CacheBuilder
+        .newBuilder()
+        .weakKeys()
+        .build( CacheLoader.from( LuaMethodTable::new ) );
+
+    private final String[] names;
+    private final LuaString[] luaNames;
+    private final LuaMethod[] methods;
+    private final boolean[] nonYielding;
+
+    private LuaMethodTable( Class<?> klass )
+    {
+        List<NamedMethod<LuaMethod>> methods = LuaMethod.GENERATOR.getMethods( klass );
+        int size = methods.size();
+        names = new String[size];
+        luaNames = new LuaString[size];
+        this.methods = new LuaMethod[size];
+        nonYielding = new boolean[size];
+
+        for( int i = 0; i < size; i++ )
+        {
+            NamedMethod<LuaMethod> method = methods.get( i );
+            names[i] = method.getName();
+            luaNames[i] = LuaString.valueOf( method.getName() );
+            this.methods[i] = method.getMethod();
+            nonYielding[i] = method.nonYielding();
+        }
+    }
+
+    static LuaMethodTable of( Class<?> klass )
+    {
+        return cache.getUnchecked( klass );
+    }
+
+    int size()
+    {
+        return names.length;
+    }
+
+    /**
+     * Add functions for each of this class's methods to a table.
+     *
+     * @param table    The table to add to.
+     * @param machine  The machine these functions belong to.
+     * @param instance The object to call these methods on.
+     * @param context  The context to call these methods with.
+     */
+    void bind( LuaTable table, CobaltLuaMachine machine, Object instance, ILuaContext context )
+    {
+        for( int i = 0; i < names.length; i++ )
+        {
+            table.rawset( luaNames[i], nonYielding[i]
+                ? new BasicFunction( machine, methods[i], instance, context, names[i] )
+                : new ResultInterpreterFunction( machine, methods[i], instance, context, names[i] ) );
+        }
+    }
+}
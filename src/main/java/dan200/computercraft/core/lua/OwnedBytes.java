@@ -0,0 +1,43 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.lua;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A byte array which is handed over to the Lua machine, and so may be converted to a Lua string without copying it.
+ *
+ * Plain {@code byte[]}s are copied when converted, as the caller may still hold on to (and modify) the array. Wrapping
+ * an array in this class is a promise that it is never touched again, which is useful when returning large, freshly
+ * allocated arrays such as the contents of a file.
+ */
+public final class OwnedBytes
+{
+    private final byte[] bytes;
+
+    private OwnedBytes( byte[] bytes )
+    {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Wrap a byte array, transferring ownership of it to the Lua machine.
+     *
+     * @param bytes The array to wrap. This must not be used or modified after calling this method.
+     * @return The wrapped array.
+     */
+    @Nonnull
+    public static OwnedBytes of( @Nonnull byte[] bytes )
+    {
+        return new OwnedBytes( bytes );
+    }
+
+    @Nonnull
+    byte[] bytes()
+    {
+        return bytes;
+    }
+}
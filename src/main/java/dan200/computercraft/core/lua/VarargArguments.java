@@ -77,6 +77,23 @@ class VarargArguments implements IArguments
         return value instanceof LuaInteger ? value.toInteger() : (long) LuaValues.checkFinite( index, value.toDouble() );
     }
 
+    @Override
+    public boolean getBoolean( int index ) throws LuaException
+    {
+        LuaValue value = varargs.arg( index + 1 );
+        if( !(value instanceof LuaBoolean) ) throw LuaValues.badArgument( index, "boolean", value.typeName() );
+        return value.toBoolean();
+    }
+
+    @Nonnull
+    @Override
+    public String getString( int index ) throws LuaException
+    {
+        LuaValue value = varargs.arg( index + 1 );
+        if( !(value instanceof LuaBaseString) ) throw LuaValues.badArgument( index, "string", value.typeName() );
+        return value.toString();
+    }
+
     @Nonnull
     @Override
     public ByteBuffer getBytes( int index ) throws LuaException
@@ -11,6 +11,7 @@ import net.minecraft.nbt.NbtCompound;
 import net.minecraft.network.PacketByteBuf;
 
 import javax.annotation.Nonnull;
+import java.util.BitSet;
 
 public class Terminal
 {
@@ -33,6 +34,15 @@ public class Terminal
 
     private final Runnable onChanged;
 
+    /**
+     * The range of columns on each row which have changed since the last call to {@link #writeDelta(PacketByteBuf)}.
+     * A row is clean when its start is greater than or equal to its end.
+     */
+    private int[] dirtyStart;
+    private int[] dirtyEnd;
+    private boolean paletteDirty = true;
+    private boolean resized = true;
+
     public Terminal( int width, int height )
     {
         this( width, height, null );
@@ -53,6 +63,10 @@ public class Terminal
             textColour[i] = new TextBuffer( base16.charAt( cursorColour ), this.width );
             backgroundColour[i] = new TextBuffer( base16.charAt( cursorBackgroundColour ), this.width );
         }
+
+        dirtyStart = new int[height];
+        dirtyEnd = new int[height];
+        markDirty();
     }
 
     public synchronized void reset()
@@ -63,8 +77,9 @@ public class Terminal
         cursorY = 0;
         cursorBlink = false;
         clear();
-        setChanged();
         palette.resetColours();
+        paletteDirty = true;
+        setChanged();
     }
 
     public int getWidth()
@@ -120,6 +135,11 @@ public class Terminal
                 backgroundColour[i].write( oldBackgroundColour[i] );
             }
         }
+
+        dirtyStart = new int[height];
+        dirtyEnd = new int[height];
+        markDirty();
+        resized = true;
         setChanged();
     }
 
@@ -200,6 +220,7 @@ public class Terminal
             this.text[y].write( text, x );
             this.textColour[y].write( textColour, x );
             this.backgroundColour[y].write( backgroundColour, x );
+            markDirty( y, x, x + text.length() );
             setChanged();
         }
     }
@@ -213,6 +234,7 @@ public class Terminal
             this.text[y].write( text, x );
             textColour[y].fill( base16.charAt( cursorColour ), x, x + text.length() );
             backgroundColour[y].fill( base16.charAt( cursorBackgroundColour ), x, x + text.length() );
+            markDirty( y, x, x + text.length() );
             setChanged();
         }
     }
@@ -243,6 +265,7 @@ public class Terminal
             text = newText;
             textColour = newTextColour;
             backgroundColour = newBackgroundColour;
+            markDirty();
             setChanged();
         }
     }
@@ -255,6 +278,7 @@ public class Terminal
             textColour[y].fill( base16.charAt( cursorColour ) );
             backgroundColour[y].fill( base16.charAt( cursorBackgroundColour ) );
         }
+        markDirty();
         setChanged();
     }
 
@@ -266,6 +290,7 @@ public class Terminal
             text[y].fill( ' ' );
             textColour[y].fill( base16.charAt( cursorColour ) );
             backgroundColour[y].fill( base16.charAt( cursorBackgroundColour ) );
+            markDirty( y, 0, width );
             setChanged();
         }
     }
@@ -284,6 +309,7 @@ public class Terminal
         this.text[y].write( text );
         this.textColour[y].write( textColour );
         this.backgroundColour[y].write( backgroundColour );
+        markDirty( y, 0, width );
         setChanged();
     }
 
@@ -310,6 +336,71 @@ public class Terminal
         if( onChanged != null ) onChanged.run();
     }
 
+    /**
+     * Mark the palette as having changed. This should be called after modifying {@link #getPalette()}.
+     */
+    public final synchronized void setPaletteChanged()
+    {
+        paletteDirty = true;
+        setChanged();
+    }
+
+    private void markDirty( int y, int start, int end )
+    {
+        start = Math.max( start, 0 );
+        end = Math.min( end, width );
+        if( start >= end ) return;
+
+        if( dirtyStart[y] >= dirtyEnd[y] )
+        {
+            dirtyStart[y] = start;
+            dirtyEnd[y] = end;
+        }
+        else
+        {
+            dirtyStart[y] = Math.min( dirtyStart[y], start );
+            dirtyEnd[y] = Math.max( dirtyEnd[y], end );
+        }
+    }
+
+    private void markDirty()
+    {
+        for( int y = 0; y < height; y++ )
+        {
+            dirtyStart[y] = 0;
+            dirtyEnd[y] = width;
+        }
+    }
+
+    private void clearDirty()
+    {
+        for( int y = 0; y < height; y++ ) dirtyStart[y] = dirtyEnd[y] = 0;
+        paletteDirty = false;
+        resized = false;
+    }
+
+    /**
+     * Determine whether this terminal has been resized since the last delta was written. Deltas cannot be applied to a
+     * terminal of a different size, so a full snapshot must be sent instead.
+     *
+     * @return Whether this terminal has been resized.
+     */
+    public synchronized boolean hasResized()
+    {
+        return resized;
+    }
+
+    /**
+     * Reset this terminal's change tracking, without writing a delta. This should be called whenever a full snapshot
+     * has been sent to all viewers.
+     *
+     * @see #writeDelta(PacketByteBuf)
+     */
+    public synchronized void resetChanges()
+    {
+        clearDirty();
+    }
+
     public synchronized void write( PacketByteBuf buffer )
     {
         buffer.writeInt( cursorX );
@@ -336,7 +427,64 @@ public class Terminal
         palette.write( buffer );
     }
 
-    public synchronized void read( PacketByteBuf buffer )
+    /**
+     * Write the parts of the terminal which have changed since the last delta, and reset the change tracking.
+     *
+     * Each changed row is written as a single span covering every modified column. The cursor is always written, and
+     * the palette only if it has changed.
+     *
+     * @param buffer The buffer to write to.
+     * @see #readDelta(PacketByteBuf)
+     */
+    public synchronized void writeDelta( PacketByteBuf buffer )
+    {
+        buffer.writeInt( cursorX );
+        buffer.writeInt( cursorY );
+        buffer.writeBoolean( cursorBlink );
+        buffer.writeByte( cursorBackgroundColour << 4 | cursorColour );
+
+        int rows = 0;
+        for( int y = 0; y < height; y++ )
+        {
+            if( dirtyStart[y] < dirtyEnd[y] ) rows++;
+        }
+
+        buffer.writeVarInt( rows );
+        for( int y = 0; y < height; y++ )
+        {
+            int start = dirtyStart[y], end = dirtyEnd[y];
+            if( start >= end ) continue;
+
+            buffer.writeVarInt( y );
+            buffer.writeVarInt( start );
+            buffer.writeVarInt( end - start );
+
+            TextBuffer text = this.text[y];
+            TextBuffer textColour = this.textColour[y];
+            TextBuffer backColour = backgroundColour[y];
+            for( int x = start; x < end; x++ )
+            {
+                buffer.writeByte( text.charAt( x ) & 0xFF );
+                buffer.writeByte( getColour(
+                    backColour.charAt( x ), Colour.BLACK ) << 4 |
+                    getColour( textColour.charAt( x ), Colour.WHITE )
+                );
+            }
+        }
+
+        buffer.writeBoolean( paletteDirty );
+        if( paletteDirty ) palette.write( buffer );
+
+        clearDirty();
+    }
+
+    /**
+     * Apply a delta written by {@link #writeDelta(PacketByteBuf)}. The terminal must be the same size as the one the
+     * delta was written from.
+     *
+     * @param buffer The buffer to read from.
+     */
+    public synchronized void readDelta( PacketByteBuf buffer )
     {
         cursorX = buffer.readInt();
         cursorY = buffer.readInt();
@@ -346,13 +494,18 @@ public class Terminal
         cursorBackgroundColour = (cursorColour >> 4) & 0xF;
         this.cursorColour = cursorColour & 0xF;
 
-        for( int y = 0; y < height; y++ )
+        int rows = buffer.readVarInt();
+        for( int i = 0; i < rows; i++ )
         {
+            int y = buffer.readVarInt();
+            int start = buffer.readVarInt();
+            int length = buffer.readVarInt();
+            if( y < 0 || y >= height ) throw new IllegalStateException( "Row out of bounds" );
+
             TextBuffer text = this.text[y];
             TextBuffer textColour = this.textColour[y];
             TextBuffer backColour = backgroundColour[y];
-
-            for( int x = 0; x < width; x++ )
+            for( int x = start; x < start + length; x++ )
             {
                 text.setChar( x, (char) (buffer.readByte() & 0xFF) );
 
@@ -360,12 +513,83 @@ public class Terminal
                 backColour.setChar( x, base16.charAt( (colour >> 4) & 0xF ) );
                 textColour.setChar( x, base16.charAt( colour & 0xF ) );
             }
+
+            markDirty( y, start, start + length );
+        }
+
+        if( buffer.readBoolean() )
+        {
+            palette.read( buffer );
+            paletteDirty = true;
         }
 
-        palette.read( buffer );
         setChanged();
     }
 
+    public synchronized void read( PacketByteBuf buffer )
+    {
+        cursorX = buffer.readInt();
+        cursorY = buffer.readInt();
+        cursorBlink = buffer.readBoolean();
+
+        byte cursorColour = buffer.readByte();
+        cursorBackgroundColour = (cursorColour >> 4) & 0xF;
+        this.cursorColour = cursorColour & 0xF;
+
+        for( int y = 0; y < height; y++ )
+        {
+            TextBuffer text = this.text[y];
+            TextBuffer textColour = this.textColour[y];
+            TextBuffer backColour = backgroundColour[y];
+
+            // Only mark the cells which have actually changed as dirty, so that renderers can skip unchanged rows.
+            int changedStart = width, changedEnd = 0;
+            for( int x = 0; x < width; x++ )
+            {
+                char character = (char) (buffer.readByte() & 0xFF);
+                byte colour = buffer.readByte();
+                char back = base16.charAt( (colour >> 4) & 0xF );
+                char fore = base16.charAt( colour & 0xF );
+
+                if( text.charAt( x ) != character || backColour.charAt( x ) != back || textColour.charAt( x ) != fore )
+                {
+                    text.setChar( x, character );
+                    backColour.setChar( x, back );
+                    textColour.setChar( x, fore );
+
+                    if( x < changedStart ) changedStart = x;
+                    changedEnd = x + 1;
+                }
+            }
+
+            markDirty( y, changedStart, changedEnd );
+        }
+
+        if( palette.read( buffer ) ) paletteDirty = true;
+        setChanged();
+    }
+
+    /**
+     * Collect the rows which have changed since the change tracking was last reset, and then reset it.
+     *
+     * This is intended for client-side terminals, allowing renderers to only redraw the rows which have changed. It
+     * shares its change tracking with {@link #writeDelta(PacketByteBuf)}, and so the two should not be mixed.
+     *
+     * @param rows The set to add the changed rows to.
+     * @return Whether the palette has changed.
+     */
+    public synchronized boolean pollChanges( BitSet rows )
+    {
+        for( int y = 0; y < height; y++ )
+        {
+            if( dirtyStart[y] < dirtyEnd[y] ) rows.set( y );
+        }
+
+        boolean changedPalette = paletteDirty;
+        clearDirty();
+        return changedPalette;
+    }
+
     public synchronized NbtCompound writeToNBT( NbtCompound nbt )
     {
         nbt.putInt( "term_cursorX", cursorX );
@@ -412,6 +636,8 @@ public class Terminal
         }
 
         palette.readFromNBT( nbt );
+        paletteDirty = true;
+        markDirty();
         setChanged();
     }
 
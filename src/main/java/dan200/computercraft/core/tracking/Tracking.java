@@ -11,12 +11,22 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 public final class Tracking
 {
     static final AtomicInteger tracking = new AtomicInteger( 0 );
 
+    /**
+     * The number of buckets in {@link #bootTimes}. Bucket {@code n} counts boots which took less than {@code 2^n}
+     * milliseconds (and at least {@code 2^(n-1)}), with the last bucket counting anything longer.
+     */
+    public static final int BOOT_BUCKETS = 16;
+
+    private static final AtomicLongArray bootTimes = new AtomicLongArray( BOOT_BUCKETS );
+
     private static final Object lock = new Object();
     private static final HashMap<UUID, TrackingContext> contexts = new HashMap<>();
     private static final List<Tracker> trackers = new ArrayList<>();
@@ -64,6 +74,37 @@ public final class Tracking
         }
     }
 
+    /**
+     * Record how long a computer took to start up, from being queued to turn on to its Lua machine being started.
+     *
+     * Unlike other timings, this is always recorded in a histogram (see {@link #getBootTimes()}), as computers
+     * typically boot before anyone has started tracking.
+     *
+     * @param computer The computer which booted.
+     * @param time     The time it took to boot, in nanoseconds.
+     */
+    public static void addBootTiming( Computer computer, long time )
+    {
+        long millis = TimeUnit.NANOSECONDS.toMillis( time );
+        int bucket = millis <= 0 ? 0 : Math.min( BOOT_BUCKETS - 1, 64 - Long.numberOfLeadingZeros( millis ) );
+        bootTimes.incrementAndGet( bucket );
+
+        addValue( computer, TrackingField.BOOT_TIME, time );
+    }
+
+    /**
+     * Get a histogram of computer boot times since the server started.
+     *
+     * @return The number of computers in each bucket.
+     * @see #BOOT_BUCKETS
+     */
+    public static long[] getBootTimes()
+    {
+        long[] times = new long[BOOT_BUCKETS];
+        for( int i = 0; i < BOOT_BUCKETS; i++ ) times[i] = bootTimes.get( i );
+        return times;
+    }
+
     public static void addValue( Computer computer, TrackingField field, long change )
     {
         if( tracking.get() == 0 ) return;
@@ -83,5 +124,7 @@ public final class Tracking
             trackers.clear();
             tracking.set( 0 );
         }
+
+        for( int i = 0; i < BOOT_BUCKETS; i++ ) bootTimes.set( i, 0 );
     }
 }
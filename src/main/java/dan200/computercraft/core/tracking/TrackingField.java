@@ -19,6 +19,8 @@ public final class TrackingField
     public static final TrackingField AVERAGE_TIME = TrackingField.of( "average", x -> String.format( "%4.1fms", x / 1e6 ) );
     public static final TrackingField MAX_TIME = TrackingField.of( "max", x -> String.format( "%5.1fms", x / 1e6 ) );
 
+    public static final TrackingField BOOT_TIME = TrackingField.of( "boot_time", x -> String.format( "%7.1fms", x / 1e6 ) );
+
     public static final TrackingField SERVER_COUNT = TrackingField.of( "server_count", x -> String.format( "%4d", x ) );
     public static final TrackingField SERVER_TIME = TrackingField.of( "server_time", x -> String.format( "%7.1fms", x / 1e6 ) );
 
@@ -29,6 +31,10 @@ public final class TrackingField
     public static final TrackingField HTTP_REQUESTS = TrackingField.of( "http", TrackingField::formatDefault );
     public static final TrackingField HTTP_UPLOAD = TrackingField.of( "http_upload", TrackingField::formatBytes );
     public static final TrackingField HTTP_DOWNLOAD = TrackingField.of( "http_download", TrackingField::formatBytes );
+    public static final TrackingField HTTP_REUSED = TrackingField.of( "http_reused", TrackingField::formatDefault );
+    public static final TrackingField HTTP_VALIDATE_TIME = TrackingField.of( "http_validate_time", x -> String.format( "%7.1fms", x / 1e6 ) );
+    public static final TrackingField HTTP_RESOLVE_TIME = TrackingField.of( "http_resolve_time", x -> String.format( "%7.1fms", x / 1e6 ) );
+    public static final TrackingField HTTP_CONNECT_TIME = TrackingField.of( "http_connect_time", x -> String.format( "%7.1fms", x / 1e6 ) );
 
     public static final TrackingField WEBSOCKET_INCOMING = TrackingField.of( "websocket_incoming", TrackingField::formatBytes );
     public static final TrackingField WEBSOCKET_OUTGOING = TrackingField.of( "websocket_outgoing", TrackingField::formatBytes );
@@ -22,6 +22,7 @@ import dan200.computercraft.shared.computer.core.ServerComputer;
 import dan200.computercraft.shared.computer.inventory.ContainerViewComputer;
 import dan200.computercraft.shared.network.container.ViewComputerContainerData;
 import dan200.computercraft.shared.util.IDAssigner;
+import dan200.computercraft.shared.wired.WiredNetwork;
 import net.fabricmc.fabric.api.screenhandler.v1.ExtendedScreenHandlerFactory;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.PlayerEntity;
@@ -61,6 +62,8 @@ public final class CommandComputerCraft
     private static final int DUMP_LIST_ID = 5373952;
     private static final int DUMP_SINGLE_ID = 1844510720;
     private static final int TRACK_ID = 373882880;
+    private static final int BOOT_ID = 1091264512;
+    private static final int NETWORK_ID = 1448216320;
 
     private CommandComputerCraft()
     {
@@ -288,7 +291,15 @@ public final class CommandComputerCraft
                         }
 
                         return displayTimings( context.getSource(), sort, fields );
-                    } ) ) )
+                    } ) )
+
+                .then( command( "boot" )
+                    .requires( UserLevel.OWNER_OP )
+                    .executes( context -> displayBootTimes( context.getSource() ) ) )
+
+                .then( command( "network" )
+                    .requires( UserLevel.OWNER_OP )
+                    .executes( context -> displayNetworkStats( context.getSource() ) ) ) )
         );
     }
 
@@ -377,6 +388,63 @@ public final class CommandComputerCraft
 
     private static final List<TrackingField> DEFAULT_FIELDS = Arrays.asList( TrackingField.TASKS, TrackingField.TOTAL_TIME, TrackingField.AVERAGE_TIME, TrackingField.MAX_TIME );
 
+    private static int displayBootTimes( ServerCommandSource source ) throws CommandSyntaxException
+    {
+        long[] times = Tracking.getBootTimes();
+        TableBuilder table = new TableBuilder( BOOT_ID,
+            translate( "commands.computercraft.track.boot.time" ),
+            translate( "commands.computercraft.track.boot.computers" )
+        );
+
+        long total = 0;
+        for( int i = 0; i < times.length; i++ )
+        {
+            if( times[i] == 0 ) continue;
+
+            String range;
+            if( i == 0 )
+            {
+                range = "< 1 ms";
+            }
+            else if( i == times.length - 1 )
+            {
+                range = ">= " + (1L << (i - 1)) + " ms";
+            }
+            else
+            {
+                range = (1L << (i - 1)) + "-" + (1L << i) + " ms";
+            }
+
+            table.row( text( range ), text( Long.toString( times[i] ) ) );
+            total += times[i];
+        }
+
+        if( total == 0 ) throw NO_TIMINGS_EXCEPTION.create();
+
+        table.display( source );
+        return (int) Math.min( total, Integer.MAX_VALUE );
+    }
+
+    private static int displayNetworkStats( ServerCommandSource source )
+    {
+        long[] stats = WiredNetwork.getRouteCacheStats();
+        long hits = stats[0], misses = stats[1], total = hits + misses;
+
+        TableBuilder table = new TableBuilder( NETWORK_ID,
+            translate( "commands.computercraft.track.network.hits" ),
+            translate( "commands.computercraft.track.network.misses" ),
+            translate( "commands.computercraft.track.network.hit_rate" )
+        );
+        table.row(
+            text( Long.toString( hits ) ),
+            text( Long.toString( misses ) ),
+            text( total == 0 ? "-" : String.format( Locale.ROOT, "%.1f%%", hits * 100.0 / total ) )
+        );
+
+        table.display( source );
+        return (int) Math.min( total, Integer.MAX_VALUE );
+    }
+
     private static int displayTimings( ServerCommandSource source, TrackingField sortField, List<TrackingField> fields ) throws CommandSyntaxException
     {
         return displayTimings( source, getTimingContext( source ).getTimings(), sortField, fields );
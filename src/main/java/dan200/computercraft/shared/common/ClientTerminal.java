@@ -7,6 +7,7 @@
 package dan200.computercraft.shared.common;
 
 import dan200.computercraft.core.terminal.Terminal;
+import dan200.computercraft.shared.network.client.TerminalDelta;
 import dan200.computercraft.shared.network.client.TerminalState;
 import net.minecraft.nbt.NbtCompound;
 
@@ -58,6 +59,17 @@ public class ClientTerminal implements ITerminal
         }
     }
 
+    /**
+     * Apply a partial update to this terminal.
+     *
+     * @param delta The changes to apply.
+     * @return Whether the changes could be applied. If not, a full copy of the terminal should be requested.
+     */
+    public boolean readDelta( TerminalDelta delta )
+    {
+        return terminal != null && delta.apply( terminal );
+    }
+
     private void resizeTerminal( int width, int height )
     {
         if( terminal == null )
@@ -17,12 +17,15 @@ import dan200.computercraft.core.apis.IAPIEnvironment;
 import dan200.computercraft.core.computer.Computer;
 import dan200.computercraft.core.computer.ComputerSide;
 import dan200.computercraft.core.computer.IComputerEnvironment;
+import dan200.computercraft.core.terminal.Terminal;
 import dan200.computercraft.shared.common.ServerTerminal;
 import dan200.computercraft.shared.network.NetworkHandler;
 import dan200.computercraft.shared.network.NetworkMessage;
 import dan200.computercraft.shared.network.client.ComputerDataClientMessage;
 import dan200.computercraft.shared.network.client.ComputerDeletedClientMessage;
 import dan200.computercraft.shared.network.client.ComputerTerminalClientMessage;
+import dan200.computercraft.shared.network.client.ComputerTerminalDeltaClientMessage;
+import dan200.computercraft.shared.network.client.TerminalDelta;
 import me.shedaniel.cloth.api.utils.v1.GameInstanceUtils;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.nbt.NbtCompound;
@@ -34,6 +37,7 @@ import net.minecraft.world.World;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.InputStream;
+import java.util.*;
 
 public class ServerComputer extends ServerTerminal implements IComputer, IComputerEnvironment
 {
@@ -48,6 +52,11 @@ public class ServerComputer extends ServerTerminal implements IComputer, IComput
     private boolean changedLastFrame;
     private int ticksSincePing;
 
+    /**
+     * Players who have an up-to-date copy of this computer's terminal, and so only need to be sent changes to it.
+     */
+    private Set<UUID> terminalViewers = Collections.emptySet();
+
     public ServerComputer( World world, int computerID, String label, int instanceID, ComputerFamily family, int terminalWidth, int terminalHeight )
     {
         super( family != ComputerFamily.NORMAL, terminalWidth, terminalHeight );
@@ -157,25 +166,91 @@ public class ServerComputer extends ServerTerminal implements IComputer, IComput
         if( hasTerminalChanged() || force )
         {
             MinecraftServer server = GameInstanceUtils.getServer();
-            if( server != null )
+            if( server != null ) broadcastTerminal( server.getPlayerManager().getPlayerList(), force );
+        }
+    }
+
+    /**
+     * Send the terminal to clients who are currently interacting with the computer.
+     *
+     * Players who already have a copy of the terminal are only sent the changes since the last broadcast. Everyone else
+     * (or everyone, if the terminal has been resized or we are forcing an update) receives a full snapshot.
+     *
+     * @param players The players which may be interested in this terminal.
+     * @param force   Whether to send a full snapshot to all players.
+     */
+    private void broadcastTerminal( List<? extends PlayerEntity> players, boolean force )
+    {
+        List<PlayerEntity> deltaPlayers = new ArrayList<>();
+        List<PlayerEntity> fullPlayers = new ArrayList<>();
+        Set<UUID> viewers = new HashSet<>();
+        for( PlayerEntity player : players )
+        {
+            if( !isTerminalRecipient( player ) ) continue;
+
+            (!force && terminalViewers.contains( player.getUuid() ) ? deltaPlayers : fullPlayers).add( player );
+            viewers.add( player.getUuid() );
+        }
+        terminalViewers = viewers;
+
+        Terminal terminal = getTerminal();
+        NetworkMessage deltaPacket = null, fullPacket = null;
+        if( terminal == null )
+        {
+            fullPlayers.addAll( deltaPlayers );
+            deltaPlayers.clear();
+            if( !fullPlayers.isEmpty() ) fullPacket = createTerminalPacket();
+        }
+        else
+        {
+            // Take the delta and snapshot together, so no changes can be lost between them.
+            synchronized( terminal )
             {
-                // Send terminal state to clients who are currently interacting with the computer.
+                if( terminal.hasResized() )
+                {
+                    fullPlayers.addAll( deltaPlayers );
+                    deltaPlayers.clear();
+                }
 
-                NetworkMessage packet = null;
-                for( PlayerEntity player : server.getPlayerManager()
-                    .getPlayerList() )
+                if( !deltaPlayers.isEmpty() )
                 {
-                    if( isInteracting( player ) )
-                    {
-                        if( packet == null )
-                        {
-                            packet = createTerminalPacket();
-                        }
-                        NetworkHandler.sendToPlayer( player, packet );
-                    }
+                    deltaPacket = new ComputerTerminalDeltaClientMessage( getInstanceID(), new TerminalDelta( terminal ) );
                 }
+                if( !fullPlayers.isEmpty() ) fullPacket = createTerminalPacket();
+
+                // If no-one is relying on the previous changes, then just reset them.
+                if( deltaPacket == null ) terminal.resetChanges();
             }
         }
+
+        if( deltaPacket != null ) NetworkHandler.sendToPlayers( deltaPlayers, deltaPacket );
+        if( fullPacket != null ) NetworkHandler.sendToPlayers( fullPlayers, fullPacket );
+    }
+
+    /**
+     * Determine whether this player should be sent this computer's terminal.
+     *
+     * @param player The player to check.
+     * @return Whether this player should receive terminal updates.
+     */
+    protected boolean isTerminalRecipient( PlayerEntity player )
+    {
+        return isInteracting( player );
+    }
+
+    /**
+     * Send this player a complete copy of the terminal on the next broadcast, as their copy is out of date.
+     *
+     * @param player The player to resync.
+     */
+    public void resyncTerminal( PlayerEntity player )
+    {
+        if( !terminalViewers.contains( player.getUuid() ) ) return;
+
+        Set<UUID> viewers = new HashSet<>( terminalViewers );
+        viewers.remove( player.getUuid() );
+        terminalViewers = viewers;
+        markTerminalChanged();
     }
 
     public boolean hasOutputChanged()
@@ -272,8 +347,16 @@ public class ServerComputer extends ServerTerminal implements IComputer, IComput
 
     public void sendTerminalState( PlayerEntity player )
     {
-        // Send terminal state to client
+        // Send terminal state to client. Any changes made since the last broadcast will be sent again with the next
+        // delta, so it's safe to treat this player as up-to-date.
         NetworkHandler.sendToPlayer( player, createTerminalPacket() );
+
+        if( !terminalViewers.contains( player.getUuid() ) )
+        {
+            Set<UUID> viewers = new HashSet<>( terminalViewers );
+            viewers.add( player.getUuid() );
+            terminalViewers = viewers;
+        }
     }
 
     public void broadcastDelete()
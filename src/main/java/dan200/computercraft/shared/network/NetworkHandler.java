@@ -9,6 +9,8 @@ package dan200.computercraft.shared.network;
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.shared.network.client.*;
 import dan200.computercraft.shared.network.server.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
@@ -20,6 +22,7 @@ import net.fabricmc.api.Environment;
 import net.fabricmc.fabric.api.network.ClientSidePacketRegistry;
 import net.fabricmc.fabric.api.network.PacketContext;
 import net.fabricmc.fabric.api.network.ServerSidePacketRegistry;
+import net.fabricmc.fabric.api.networking.v1.PlayerLookup;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.entity.player.PlayerEntity;
@@ -28,11 +31,15 @@ import net.minecraft.network.packet.c2s.play.CustomPayloadC2SPacket;
 import net.minecraft.network.packet.s2c.play.CustomPayloadS2CPacket;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.WorldChunk;
 
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -44,6 +51,26 @@ public final class NetworkHandler
 
     private static final Identifier ID = new Identifier( ComputerCraft.MOD_ID, "main" );
 
+    /**
+     * The packet id for a batch of messages, sent by {@link #flush()}.
+     */
+    private static final int BATCH_ID = 127;
+
+    /**
+     * The maximum size of a single batch. This is a little less than the maximum size of a custom payload packet.
+     */
+    private static final int MAX_BATCH_SIZE = 1_000_000;
+
+    /**
+     * Messages which have been encoded and are waiting to be sent to each player at the end of the tick.
+     *
+     * Messages may be queued from any thread. Each player's list is only ever modified within
+     * {@link ConcurrentMap#compute}, so once it has been removed from the map nobody else can add to it.
+     *
+     * @see #flush()
+     */
+    private static final ConcurrentMap<ServerPlayerEntity, List<ByteBuf>> pending = new ConcurrentHashMap<>();
+
     private NetworkHandler()
     {
     }
@@ -65,6 +92,7 @@ public final class NetworkHandler
         registerMainThread( 4, MouseEventServerMessage.class, MouseEventServerMessage::new );
         registerMainThread( 5, UploadFileMessage.class, UploadFileMessage::new );
         registerMainThread( 6, ContinueUploadMessage.class, ContinueUploadMessage::new );
+        registerMainThread( 7, RequestTerminalMessage.class, RequestTerminalMessage::new );
 
         // Client messages
         registerMainThread( 10, ChatTableClientMessage.class, ChatTableClientMessage::new );
@@ -77,6 +105,16 @@ public final class NetworkHandler
         registerMainThread( 17, SpeakerStopClientMessage.class, SpeakerStopClientMessage::new );
         registerMainThread( 18, SpeakerMoveClientMessage.class, SpeakerMoveClientMessage::new );
         registerMainThread( 19, UploadResultMessage.class, UploadResultMessage::new );
+        registerMainThread( 20, ComputerTerminalDeltaClientMessage.class, ComputerTerminalDeltaClientMessage::new );
+
+        packetReaders.put( BATCH_ID, ( context, buf ) -> {
+            int count = buf.readVarInt();
+            for( int i = 0; i < count; i++ )
+            {
+                int length = buf.readVarInt();
+                receive( context, new PacketByteBuf( buf.readSlice( length ) ) );
+            }
+        } );
     }
 
     private static void receive( PacketContext context, PacketByteBuf buffer )
@@ -121,20 +159,32 @@ public final class NetworkHandler
 
     public static void sendToPlayer( PlayerEntity player, NetworkMessage packet )
     {
-        ((ServerPlayerEntity) player).networkHandler.sendPacket( new CustomPayloadS2CPacket( ID, encode( packet ) ) );
+        send( (ServerPlayerEntity) player, encode( packet ) );
+    }
+
+    /**
+     * Send a message to several players. The message is only encoded once, and the resulting buffer is shared between
+     * all players.
+     *
+     * @param players The players to send this message to.
+     * @param packet  The message to send.
+     */
+    public static void sendToPlayers( Collection<? extends PlayerEntity> players, NetworkMessage packet )
+    {
+        if( players.isEmpty() ) return;
+
+        ByteBuf payload = encode( packet );
+        for( PlayerEntity player : players ) send( (ServerPlayerEntity) player, payload );
     }
 
     public static void sendToAllPlayers( NetworkMessage packet )
     {
-        MinecraftServer server = GameInstanceUtils.getServer();
-        server.getPlayerManager()
-            .sendToAll( new CustomPayloadS2CPacket( ID, encode( packet ) ) );
+        sendToAllPlayers( GameInstanceUtils.getServer(), packet );
     }
 
     public static void sendToAllPlayers( MinecraftServer server, NetworkMessage packet )
     {
-        server.getPlayerManager()
-            .sendToAll( new CustomPayloadS2CPacket( ID, encode( packet ) ) );
+        sendToPlayers( server.getPlayerManager().getPlayerList(), packet );
     }
 
     @Environment( EnvType.CLIENT )
@@ -145,19 +195,106 @@ public final class NetworkHandler
 
     public static void sendToAllAround( NetworkMessage packet, World world, Vec3d pos, double range )
     {
-        world.getServer()
-            .getPlayerManager()
-            .sendToAround( null, pos.x, pos.y, pos.z, range, world.getRegistryKey(), new CustomPayloadS2CPacket( ID, encode( packet ) ) );
+        List<ServerPlayerEntity> players = new ArrayList<>();
+        for( ServerPlayerEntity player : world.getServer().getPlayerManager().getPlayerList() )
+        {
+            if( player.world.getRegistryKey() == world.getRegistryKey() && player.squaredDistanceTo( pos ) < range * range )
+            {
+                players.add( player );
+            }
+        }
+
+        sendToPlayers( players, packet );
     }
 
     public static void sendToAllTracking( NetworkMessage packet, WorldChunk chunk )
     {
-        for( PlayerEntity player : chunk.getWorld().getPlayers() )
+        sendToPlayers( PlayerLookup.tracking( (ServerWorld) chunk.getWorld(), chunk.getPos() ), packet );
+    }
+
+    /**
+     * Queue an encoded message to be sent to a player.
+     *
+     * Messages are held until the end of the tick, and then sent as a single batch by {@link #flush()}. This includes
+     * messages sent from other threads (such as the computer threads), so that they are always delivered in the order
+     * they were sent.
+     *
+     * @param player  The player to send to.
+     * @param payload The encoded message. This may be shared with other players, and so must not be modified.
+     */
+    private static void send( ServerPlayerEntity player, ByteBuf payload )
+    {
+        pending.compute( player, ( key, payloads ) -> {
+            if( payloads == null ) payloads = new ArrayList<>();
+            payloads.add( payload );
+            return payloads;
+        } );
+    }
+
+    /**
+     * Send all messages queued this tick, combining the messages for each player into as few packets as possible. This
+     * should only be called from the server thread.
+     */
+    public static void flush()
+    {
+        if( pending.isEmpty() ) return;
+
+        for( ServerPlayerEntity player : pending.keySet() )
         {
-            if ( chunk.getWorld().getRegistryKey().getValue() == player.getEntityWorld().getRegistryKey().getValue() && player.getChunkPos().equals( chunk.getPos() ) )
+            // Messages queued after this point will be sent on the next tick.
+            List<ByteBuf> payloads = pending.remove( player );
+            if( payloads == null || player.networkHandler == null ) continue;
+
+            int start = 0, size = 0;
+            for( int i = 0; i < payloads.size(); i++ )
             {
-                ((ServerPlayerEntity) player).networkHandler.sendPacket( new CustomPayloadS2CPacket( ID, encode( packet ) ) );
+                int length = payloads.get( i ).readableBytes();
+                if( i > start && size + length > MAX_BATCH_SIZE )
+                {
+                    player.networkHandler.sendPacket( createPacket( payloads.subList( start, i ) ) );
+                    start = i;
+                    size = 0;
+                }
+                size += length + 5;
             }
+
+            player.networkHandler.sendPacket( createPacket( payloads.subList( start, payloads.size() ) ) );
+        }
+    }
+
+    /**
+     * Discard any messages which have not been sent yet.
+     */
+    public static void reset()
+    {
+        pending.clear();
+    }
+
+    private static CustomPayloadS2CPacket createPacket( ByteBuf payload )
+    {
+        return new CustomPayloadS2CPacket( ID, new PacketByteBuf( payload.duplicate() ) );
+    }
+
+    private static CustomPayloadS2CPacket createPacket( List<ByteBuf> payloads )
+    {
+        if( payloads.size() == 1 ) return createPacket( payloads.get( 0 ) );
+
+        // Build a batch out of the original buffers, rather than copying them into a new one.
+        CompositeByteBuf batch = Unpooled.compositeBuffer( payloads.size() * 2 + 1 );
+
+        PacketByteBuf header = new PacketByteBuf( Unpooled.buffer( 6 ) );
+        header.writeByte( BATCH_ID );
+        header.writeVarInt( payloads.size() );
+        batch.addComponent( true, header );
+
+        for( ByteBuf payload : payloads )
+        {
+            PacketByteBuf length = new PacketByteBuf( Unpooled.buffer( 5 ) );
+            length.writeVarInt( payload.readableBytes() );
+            batch.addComponent( true, length );
+            batch.addComponent( true, payload.duplicate() );
         }
+
+        return new CustomPayloadS2CPacket( ID, new PacketByteBuf( batch ) );
     }
 }
@@ -0,0 +1,55 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.shared.network.client;
+
+import dan200.computercraft.shared.computer.core.ClientComputer;
+import dan200.computercraft.shared.network.NetworkHandler;
+import dan200.computercraft.shared.network.server.RequestTerminalMessage;
+import net.fabricmc.fabric.api.network.PacketContext;
+import net.minecraft.network.PacketByteBuf;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Sends the changes to a computer's terminal to a client which already has a full copy of it.
+ *
+ * @see ComputerTerminalClientMessage
+ */
+public class ComputerTerminalDeltaClientMessage extends ComputerClientMessage
+{
+    private final TerminalDelta delta;
+
+    public ComputerTerminalDeltaClientMessage( int instanceId, TerminalDelta delta )
+    {
+        super( instanceId );
+        this.delta = delta;
+    }
+
+    public ComputerTerminalDeltaClientMessage( @Nonnull PacketByteBuf buf )
+    {
+        super( buf );
+        delta = new TerminalDelta( buf );
+    }
+
+    @Override
+    public void toBytes( @Nonnull PacketByteBuf buf )
+    {
+        super.toBytes( buf );
+        delta.write( buf );
+    }
+
+    @Override
+    public void handle( PacketContext context )
+    {
+        ClientComputer computer = getComputer();
+        if( !computer.readDelta( delta ) )
+        {
+            // We've got out of sync with the server somehow, so request the whole terminal again.
+            NetworkHandler.sendToServer( new RequestTerminalMessage( getInstanceId() ) );
+        }
+    }
+}
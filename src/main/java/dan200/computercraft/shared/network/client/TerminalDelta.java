@@ -0,0 +1,76 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.shared.network.client;
+
+import dan200.computercraft.core.terminal.Terminal;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.PacketByteBuf;
+
+/**
+ * The changes made to a terminal since the last {@link TerminalState} or {@link TerminalDelta} was sent.
+ *
+ * Unlike {@link TerminalState}, this only contains the rows which have changed (and the palette, if modified), and so
+ * can only be applied to a terminal which is already in sync with the server.
+ *
+ * @see Terminal#writeDelta(PacketByteBuf)
+ */
+public class TerminalDelta
+{
+    public final int width;
+    public final int height;
+
+    private final ByteBuf buffer;
+
+    public TerminalDelta( Terminal terminal )
+    {
+        synchronized( terminal )
+        {
+            width = terminal.getWidth();
+            height = terminal.getHeight();
+
+            ByteBuf buf = buffer = Unpooled.buffer();
+            terminal.writeDelta( new PacketByteBuf( buf ) );
+        }
+    }
+
+    public TerminalDelta( PacketByteBuf buf )
+    {
+        width = buf.readVarInt();
+        height = buf.readVarInt();
+
+        int length = buf.readVarInt();
+        buffer = Unpooled.buffer( length );
+        buf.readBytes( buffer, length );
+    }
+
+    public void write( PacketByteBuf buf )
+    {
+        buf.writeVarInt( width );
+        buf.writeVarInt( height );
+        buf.writeVarInt( buffer.readableBytes() );
+        buf.writeBytes( buffer, buffer.readerIndex(), buffer.readableBytes() );
+    }
+
+    public int size()
+    {
+        return buffer.readableBytes();
+    }
+
+    /**
+     * Apply this delta to a terminal.
+     *
+     * @param terminal The terminal to apply this delta to.
+     * @return Whether the delta could be applied. If not, the terminal is out of sync and should be resent in full.
+     */
+    public boolean apply( Terminal terminal )
+    {
+        if( terminal.getWidth() != width || terminal.getHeight() != height ) return false;
+
+        terminal.readDelta( new PacketByteBuf( buffer.duplicate() ) );
+        return true;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.shared.network.server;
+
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.shared.computer.core.ServerComputer;
+import dan200.computercraft.shared.network.NetworkMessage;
+import net.fabricmc.fabric.api.network.PacketContext;
+import net.minecraft.network.PacketByteBuf;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Request a full copy of a computer's terminal, after the client's copy has got out of sync.
+ *
+ * @see ServerComputer#resyncTerminal(net.minecraft.entity.player.PlayerEntity)
+ */
+public class RequestTerminalMessage implements NetworkMessage
+{
+    private final int instance;
+
+    public RequestTerminalMessage( int instance )
+    {
+        this.instance = instance;
+    }
+
+    public RequestTerminalMessage( @Nonnull PacketByteBuf buf )
+    {
+        instance = buf.readVarInt();
+    }
+
+    @Override
+    public void toBytes( @Nonnull PacketByteBuf buf )
+    {
+        buf.writeVarInt( instance );
+    }
+
+    @Override
+    public void handle( PacketContext context )
+    {
+        ServerComputer computer = ComputerCraft.serverComputerRegistry.get( instance );
+        if( computer != null )
+        {
+            computer.resyncTerminal( context.getPlayer() );
+        }
+    }
+}
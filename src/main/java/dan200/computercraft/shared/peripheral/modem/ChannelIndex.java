@@ -0,0 +1,155 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.shared.peripheral.modem;
+
+import dan200.computercraft.api.network.IPacketReceiver;
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A set of {@link IPacketReceiver}s, indexed by the channels they are listening on.
+ *
+ * Receivers which report their open channels (namely {@link ModemPeripheral}s, via {@link IChannelNetwork}) are only
+ * stored under those channels. Any other receivers are "untracked", and receive packets on every channel.
+ *
+ * This is safe to read from multiple threads, though callers should ensure that modifications for the same receiver
+ * are not made concurrently.
+ */
+public final class ChannelIndex
+{
+    private final Map<Integer, Set<IPacketReceiver>> listeners = new ConcurrentHashMap<>();
+    private final Set<IPacketReceiver> untracked = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Determine whether a receiver's channels are tracked, or whether it should receive every packet.
+     *
+     * @param receiver The receiver to check.
+     * @return Whether this receiver's channels will be reported to the network.
+     */
+    public static boolean isTracked( IPacketReceiver receiver )
+    {
+        return receiver instanceof ModemPeripheral;
+    }
+
+    /**
+     * Add a receiver to this index.
+     *
+     * @param receiver The receiver to add.
+     * @param channels The channels this receiver is listening on, or {@code null} if it is not tracked.
+     */
+    public void add( IPacketReceiver receiver, @Nullable IntCollection channels )
+    {
+        size.incrementAndGet();
+        if( channels == null )
+        {
+            untracked.add( receiver );
+            return;
+        }
+
+        for( IntIterator it = channels.iterator(); it.hasNext(); ) open( receiver, it.nextInt() );
+    }
+
+    /**
+     * Remove a receiver from this index.
+     *
+     * @param receiver The receiver to remove.
+     * @param channels The channels this receiver was listening on, or {@code null} if it is not tracked.
+     */
+    public void remove( IPacketReceiver receiver, @Nullable IntCollection channels )
+    {
+        size.decrementAndGet();
+        if( channels == null )
+        {
+            untracked.remove( receiver );
+            return;
+        }
+
+        for( IntIterator it = channels.iterator(); it.hasNext(); ) close( receiver, it.nextInt() );
+    }
+
+    public void open( IPacketReceiver receiver, int channel )
+    {
+        listeners.computeIfAbsent( channel, x -> Collections.newSetFromMap( new ConcurrentHashMap<>() ) ).add( receiver );
+    }
+
+    public void close( IPacketReceiver receiver, int channel )
+    {
+        listeners.computeIfPresent( channel, ( k, receivers ) -> {
+            receivers.remove( receiver );
+            return receivers.isEmpty() ? null : receivers;
+        } );
+    }
+
+    /**
+     * Visit every receiver which may be interested in a packet on this channel.
+     *
+     * @param channel  The channel the packet was sent on.
+     * @param consumer The function to call for each receiver.
+     */
+    public void forEach( int channel, Consumer<IPacketReceiver> consumer )
+    {
+        Set<IPacketReceiver> receivers = listeners.get( channel );
+        if( receivers != null ) receivers.forEach( consumer );
+        if( !untracked.isEmpty() ) untracked.forEach( consumer );
+    }
+
+    /**
+     * Determine whether any receiver may be interested in a packet on this channel.
+     *
+     * @param channel The channel to check.
+     * @return Whether any receiver is listening to this channel.
+     */
+    public boolean hasListeners( int channel )
+    {
+        return !untracked.isEmpty() || listeners.containsKey( channel );
+    }
+
+    /**
+     * Determine whether any tracked receiver is listening on this channel.
+     *
+     * @param channel The channel to check.
+     * @return Whether any receiver has explicitly opened this channel.
+     */
+    public boolean isListening( int channel )
+    {
+        return listeners.containsKey( channel );
+    }
+
+    public boolean hasUntracked()
+    {
+        return !untracked.isEmpty();
+    }
+
+    /**
+     * Get every channel which at least one receiver is listening on.
+     *
+     * @return The set of open channels. This is a live view, and so may change while iterating.
+     */
+    public Set<Integer> getChannels()
+    {
+        return listeners.keySet();
+    }
+
+    /**
+     * Determine whether this index has no receivers, including those which are not listening on any channel.
+     *
+     * @return Whether this index is empty.
+     */
+    public boolean isEmpty()
+    {
+        return size.get() == 0;
+    }
+}
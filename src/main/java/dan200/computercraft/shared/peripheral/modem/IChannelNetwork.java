@@ -0,0 +1,31 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.shared.peripheral.modem;
+
+import dan200.computercraft.api.network.IPacketNetwork;
+import dan200.computercraft.api.network.IPacketReceiver;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A packet network which keeps track of which channels its receivers are listening on, and so only delivers packets to
+ * receivers listening on that channel.
+ *
+ * @see ChannelIndex
+ */
+public interface IChannelNetwork extends IPacketNetwork
+{
+    /**
+     * Update whether a receiver is listening to a channel.
+     *
+     * @param receiver The receiver whose channels have changed. This must have been added with
+     *                 {@link #addReceiver(IPacketReceiver)}.
+     * @param channel  The channel which has been opened or closed.
+     * @param open     Whether the channel is now open.
+     */
+    void setChannelOpen( @Nonnull IPacketReceiver receiver, int channel, boolean open );
+}
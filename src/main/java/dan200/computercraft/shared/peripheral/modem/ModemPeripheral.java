@@ -30,7 +30,8 @@ public abstract class ModemPeripheral implements IPeripheral, IPacketSender, IPa
 {
     private final Set<IComputerAccess> computers = new HashSet<>( 1 );
     private final ModemState state;
-    private IPacketNetwork network;
+    private final ModemState.ChannelListener channelListener = this::onChannelChanged;
+    private volatile IPacketNetwork network;
 
     protected ModemPeripheral( ModemState state )
     {
@@ -116,6 +117,7 @@ public abstract class ModemPeripheral implements IPeripheral, IPacketSender, IPa
         // Leave old network
         if( this.network != null )
         {
+            state.removeListener( channelListener );
             this.network.removeReceiver( this );
         }
 
@@ -123,9 +125,23 @@ public abstract class ModemPeripheral implements IPeripheral, IPacketSender, IPa
         this.network = network;
 
         // Join new network
-        if( this.network != null )
+        if( network != null )
+        {
+            network.addReceiver( this );
+            if( network instanceof IChannelNetwork ) state.addListener( channelListener );
+        }
+    }
+
+    private void onChannelChanged( int channel )
+    {
+        // Notifications may arrive out of order, so serialise them and always report the current state of the channel.
+        synchronized( channelListener )
         {
-            this.network.addReceiver( this );
+            IPacketNetwork network = this.network;
+            if( network instanceof IChannelNetwork )
+            {
+                ((IChannelNetwork) network).setChannelOpen( this, channel, state.isOpen( channel ) );
+            }
         }
     }
 
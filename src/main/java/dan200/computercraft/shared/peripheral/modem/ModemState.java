@@ -7,9 +7,12 @@
 package dan200.computercraft.shared.peripheral.modem;
 
 import dan200.computercraft.api.lua.LuaException;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ModemState
@@ -17,6 +20,7 @@ public class ModemState
     private final Runnable onChanged;
     private final AtomicBoolean changed = new AtomicBoolean( true );
     private final IntSet channels = new IntOpenHashSet();
+    private final List<ChannelListener> listeners = new CopyOnWriteArrayList<>();
     private boolean open = false;
 
     public ModemState()
@@ -64,36 +68,83 @@ public class ModemState
     {
         synchronized( channels )
         {
-            if( !channels.contains( channel ) )
+            if( channels.contains( channel ) ) return;
+
+            if( channels.size() >= 128 )
             {
-                if( channels.size() >= 128 )
-                {
-                    throw new LuaException( "Too many open channels" );
-                }
-                channels.add( channel );
-                setOpen( true );
+                throw new LuaException( "Too many open channels" );
             }
+            channels.add( channel );
+            setOpen( true );
         }
+
+        notifyChanged( channel );
     }
 
     public void close( int channel )
     {
         synchronized( channels )
         {
-            channels.remove( channel );
+            if( !channels.remove( channel ) ) return;
             if( channels.isEmpty() )
             {
                 setOpen( false );
             }
         }
+
+        notifyChanged( channel );
     }
 
     public void closeAll()
     {
+        IntArrayList closed;
         synchronized( channels )
         {
+            closed = new IntArrayList( channels );
             channels.clear();
             setOpen( false );
         }
+
+        for( int i = 0; i < closed.size(); i++ ) notifyChanged( closed.getInt( i ) );
+    }
+
+    /**
+     * Start listening to changes of this modem's channels. The listener will be immediately notified of all currently
+     * open channels.
+     *
+     * @param listener The listener to add.
+     */
+    public void addListener( ChannelListener listener )
+    {
+        listeners.add( listener );
+
+        IntArrayList open;
+        synchronized( channels )
+        {
+            open = new IntArrayList( channels );
+        }
+        for( int i = 0; i < open.size(); i++ ) listener.onChannelChanged( open.getInt( i ) );
+    }
+
+    public void removeListener( ChannelListener listener )
+    {
+        listeners.remove( listener );
+    }
+
+    private void notifyChanged( int channel )
+    {
+        for( ChannelListener listener : listeners ) listener.onChannelChanged( channel );
+    }
+
+    /**
+     * Listens to channels being opened or closed on a modem.
+     *
+     * Listeners are called outside of any lock, and so notifications for the same channel may arrive out of order.
+     * Listeners should instead check {@link #isOpen(int)} to determine the current state of the channel.
+     */
+    @FunctionalInterface
+    public interface ChannelListener
+    {
+        void onChannelChanged( int channel );
     }
 }
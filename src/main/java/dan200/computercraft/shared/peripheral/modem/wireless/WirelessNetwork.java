@@ -6,21 +6,59 @@
 
 package dan200.computercraft.shared.peripheral.modem.wireless;
 
-import dan200.computercraft.api.network.IPacketNetwork;
 import dan200.computercraft.api.network.IPacketReceiver;
 import dan200.computercraft.api.network.IPacketSender;
 import dan200.computercraft.api.network.Packet;
+import dan200.computercraft.shared.peripheral.modem.ChannelIndex;
+import dan200.computercraft.shared.peripheral.modem.IChannelNetwork;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
 
 import javax.annotation.Nonnull;
-import java.util.Collections;
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
-public class WirelessNetwork implements IPacketNetwork
+/**
+ * The network shared by all wireless and ender modems.
+ *
+ * In order to avoid checking every modem on the server when transmitting a packet, receivers are indexed by the
+ * dimension they are in, and then by the column of {@link #CELL_SIZE} by {@link #CELL_SIZE} blocks they are in. A
+ * range-limited transmission only needs to visit the cells within range of the sender. Interdimensional receivers and
+ * those with very large ranges are kept in separate lists, as they may receive packets from anywhere.
+ *
+ * Receivers may move (for instance, pocket computers and turtles), so their positions are re-indexed every tick by
+ * {@link #updateNetworks()}. We search an additional cell around the sender, to account for receivers which have moved
+ * since.
+ *
+ * Each cell is further indexed by channel (see {@link ChannelIndex}), so a transmission only visits modems listening on
+ * the channel it was sent on.
+ */
+public class WirelessNetwork implements IChannelNetwork
 {
+    /**
+     * The width and depth of a cell in the spatial index, as a power of two.
+     */
+    private static final int CELL_SHIFT = 6;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    /**
+     * Receivers with a range larger than this are not indexed spatially, as they may receive packets from almost
+     * anywhere in the dimension.
+     */
+    private static final double MAX_INDEXED_RANGE = 512;
+
     private static WirelessNetwork universalNetwork = null;
-    private final Set<IPacketReceiver> receivers = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+    private final ChannelIndex receivers = new ChannelIndex();
+    private final ChannelIndex interdimensional = new ChannelIndex();
+    private final Map<IPacketReceiver, Location> locations = new ConcurrentHashMap<>();
+    private final Map<IPacketReceiver, IntSet> channels = new ConcurrentHashMap<>();
+    private final Map<World, Dimension> dimensions = new ConcurrentHashMap<>();
 
     public static WirelessNetwork getUniversal()
     {
@@ -36,18 +74,181 @@ public class WirelessNetwork implements IPacketNetwork
         universalNetwork = null;
     }
 
+    /**
+     * Update the spatial index of every network. This should be called once a tick.
+     */
+    public static void updateNetworks()
+    {
+        WirelessNetwork network = universalNetwork;
+        if( network != null ) network.update();
+    }
+
     @Override
     public void addReceiver( @Nonnull IPacketReceiver receiver )
     {
         Objects.requireNonNull( receiver, "device cannot be null" );
-        receivers.add( receiver );
+        synchronized( locations )
+        {
+            if( locations.containsKey( receiver ) ) return;
+
+            // Tracked receivers start off with no open channels, and are then told about them via setChannelOpen.
+            IntSet open = null;
+            if( ChannelIndex.isTracked( receiver ) ) channels.put( receiver, open = new IntOpenHashSet() );
+
+            Location location = receiver.isInterdimensional() ? Location.INTERDIMENSIONAL : Location.of( receiver );
+            locations.put( receiver, location );
+            receivers.add( receiver, open );
+            index( receiver, location, open );
+        }
     }
 
     @Override
     public void removeReceiver( @Nonnull IPacketReceiver receiver )
     {
         Objects.requireNonNull( receiver, "device cannot be null" );
-        receivers.remove( receiver );
+        synchronized( locations )
+        {
+            Location location = locations.remove( receiver );
+            if( location == null ) return;
+
+            IntSet open = channels.remove( receiver );
+            receivers.remove( receiver, open );
+            unindex( receiver, location, open );
+        }
+    }
+
+    @Override
+    public void setChannelOpen( @Nonnull IPacketReceiver receiver, int channel, boolean open )
+    {
+        synchronized( locations )
+        {
+            IntSet receiverChannels = channels.get( receiver );
+            Location location = locations.get( receiver );
+            if( receiverChannels == null || location == null ) return;
+
+            if( open ? !receiverChannels.add( channel ) : !receiverChannels.remove( channel ) ) return;
+
+            ChannelIndex index = getIndex( location, open );
+            if( open )
+            {
+                receivers.open( receiver, channel );
+                if( index != null ) index.open( receiver, channel );
+            }
+            else
+            {
+                receivers.close( receiver, channel );
+                if( index != null ) index.close( receiver, channel );
+            }
+        }
+    }
+
+    /**
+     * Move any receivers whose position or range has changed since they were last indexed.
+     */
+    private void update()
+    {
+        synchronized( locations )
+        {
+            Map<World, Double> maxRanges = new HashMap<>();
+            for( Map.Entry<IPacketReceiver, Location> entry : locations.entrySet() )
+            {
+                IPacketReceiver receiver = entry.getKey();
+                Location oldLocation = entry.getValue();
+                if( oldLocation == Location.INTERDIMENSIONAL ) continue;
+
+                Location newLocation = Location.of( receiver );
+                if( !newLocation.equals( oldLocation ) )
+                {
+                    IntSet open = channels.get( receiver );
+                    unindex( receiver, oldLocation, open );
+                    entry.setValue( newLocation );
+                    index( receiver, newLocation, open );
+                }
+
+                if( newLocation.world != null && newLocation.indexed )
+                {
+                    maxRanges.merge( newLocation.world, newLocation.range, Math::max );
+                }
+            }
+
+            // Ranges may shrink (for instance, when a storm starts), so recompute the maximum of each dimension.
+            for( Map.Entry<World, Dimension> dimension : dimensions.entrySet() )
+            {
+                dimension.getValue().maxRange = maxRanges.getOrDefault( dimension.getKey(), 0.0 );
+            }
+        }
+    }
+
+    private void index( IPacketReceiver receiver, Location location, @Nullable IntSet open )
+    {
+        ChannelIndex index = getIndex( location, true );
+        if( index == null ) return;
+
+        index.add( receiver, open );
+        if( location.indexed )
+        {
+            Dimension dimension = dimension( location );
+            if( location.range > dimension.maxRange ) dimension.maxRange = location.range;
+        }
+    }
+
+    private void unindex( IPacketReceiver receiver, Location location, @Nullable IntSet open )
+    {
+        ChannelIndex index = getIndex( location, false );
+        if( index == null ) return;
+
+        index.remove( receiver, open );
+        cleanup( location );
+    }
+
+    /**
+     * Get the channel index for a given location.
+     *
+     * @param location The location to look up.
+     * @param create   Whether to create the index if it does not exist.
+     * @return The channel index, or {@code null} if the receiver is not in a world or the index does not exist.
+     */
+    @Nullable
+    private ChannelIndex getIndex( Location location, boolean create )
+    {
+        if( location == Location.INTERDIMENSIONAL ) return interdimensional;
+        if( location.world == null ) return null;
+
+        if( !create )
+        {
+            Dimension dimension = dimensions.get( location.world );
+            if( dimension == null ) return null;
+            return location.indexed ? dimension.cells.get( location.cell ) : dimension.unindexed;
+        }
+
+        Dimension dimension = dimension( location );
+        return location.indexed ? dimension.cells.computeIfAbsent( location.cell, x -> new ChannelIndex() ) : dimension.unindexed;
+    }
+
+    private Dimension dimension( Location location )
+    {
+        return dimensions.computeIfAbsent( location.world, x -> new Dimension() );
+    }
+
+    /**
+     * Remove any empty cells or dimensions after a receiver has been removed from a location.
+     *
+     * @param location The location which was changed.
+     */
+    private void cleanup( Location location )
+    {
+        if( location == Location.INTERDIMENSIONAL || location.world == null ) return;
+
+        Dimension dimension = dimensions.get( location.world );
+        if( dimension == null ) return;
+
+        if( location.indexed )
+        {
+            ChannelIndex cell = dimension.cells.get( location.cell );
+            if( cell != null && cell.isEmpty() ) dimension.cells.remove( location.cell );
+        }
+
+        if( dimension.cells.isEmpty() && dimension.unindexed.isEmpty() ) dimensions.remove( location.world );
     }
 
     @Override
@@ -60,9 +261,46 @@ public class WirelessNetwork implements IPacketNetwork
     public void transmitSameDimension( @Nonnull Packet packet, double range )
     {
         Objects.requireNonNull( packet, "packet cannot be null" );
-        for( IPacketReceiver device : receivers )
+        int channel = packet.getChannel();
+        interdimensional.forEach( channel, device -> tryTransmit( device, packet, range, false ) );
+
+        IPacketSender sender = packet.getSender();
+        Dimension dimension = dimensions.get( sender.getWorld() );
+        if( dimension == null ) return;
+
+        dimension.unindexed.forEach( channel, device -> tryTransmit( device, packet, range, false ) );
+
+        // Find all cells which may contain a receiver within range, including an extra cell to account for any receivers
+        // which have moved since they were indexed.
+        Vec3d position = sender.getPosition();
+        double searchRange = Math.max( range, dimension.maxRange ) + CELL_SIZE;
+        int minX = MathHelper.floor( position.x - searchRange ) >> CELL_SHIFT;
+        int maxX = MathHelper.floor( position.x + searchRange ) >> CELL_SHIFT;
+        int minZ = MathHelper.floor( position.z - searchRange ) >> CELL_SHIFT;
+        int maxZ = MathHelper.floor( position.z + searchRange ) >> CELL_SHIFT;
+
+        if( (long) (maxX - minX + 1) * (maxZ - minZ + 1) > dimension.cells.size() )
         {
-            tryTransmit( device, packet, range, false );
+            // If there are fewer occupied cells than ones within range, just visit every occupied cell.
+            for( Map.Entry<Long, ChannelIndex> cell : dimension.cells.entrySet() )
+            {
+                long key = cell.getKey();
+                int x = cellX( key ), z = cellZ( key );
+                if( x < minX || x > maxX || z < minZ || z > maxZ ) continue;
+
+                cell.getValue().forEach( channel, device -> tryTransmit( device, packet, range, false ) );
+            }
+        }
+        else
+        {
+            for( int x = minX; x <= maxX; x++ )
+            {
+                for( int z = minZ; z <= maxZ; z++ )
+                {
+                    ChannelIndex cell = dimension.cells.get( cellKey( x, z ) );
+                    if( cell != null ) cell.forEach( channel, device -> tryTransmit( device, packet, range, false ) );
+                }
+            }
         }
     }
 
@@ -70,10 +308,7 @@ public class WirelessNetwork implements IPacketNetwork
     public void transmitInterdimensional( @Nonnull Packet packet )
     {
         Objects.requireNonNull( packet, "packet cannot be null" );
-        for( IPacketReceiver device : receivers )
-        {
-            tryTransmit( device, packet, 0, true );
-        }
+        receivers.forEach( packet.getChannel(), device -> tryTransmit( device, packet, 0, true ) );
     }
 
     private static void tryTransmit( IPacketReceiver receiver, Packet packet, double range, boolean interdimensional )
@@ -97,4 +332,87 @@ public class WirelessNetwork implements IPacketNetwork
             }
         }
     }
+
+    private static long cellKey( int x, int z )
+    {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    private static int cellX( long key )
+    {
+        return (int) (key >> 32);
+    }
+
+    private static int cellZ( long key )
+    {
+        return (int) key;
+    }
+
+    /**
+     * All receivers within a single dimension.
+     */
+    private static final class Dimension
+    {
+        final Map<Long, ChannelIndex> cells = new ConcurrentHashMap<>();
+        final ChannelIndex unindexed = new ChannelIndex();
+
+        /**
+         * The largest range of any receiver within {@link #cells}.
+         */
+        volatile double maxRange;
+    }
+
+    /**
+     * Where a receiver was when it was last indexed.
+     */
+    private static final class Location
+    {
+        /**
+         * A sentinel location for interdimensional receivers, which are not indexed by position.
+         */
+        static final Location INTERDIMENSIONAL = new Location( null, 0, Double.POSITIVE_INFINITY );
+
+        @Nullable
+        final World world;
+        final long cell;
+        final double range;
+        final boolean indexed;
+
+        private Location( @Nullable World world, long cell, double range )
+        {
+            this.world = world;
+            this.cell = cell;
+            this.range = range;
+            indexed = range <= MAX_INDEXED_RANGE;
+        }
+
+        static Location of( IPacketReceiver receiver )
+        {
+            World world = receiver.getWorld();
+            if( world == null ) return new Location( null, 0, 0 );
+
+            Vec3d position = receiver.getPosition();
+            return new Location(
+                world,
+                cellKey( MathHelper.floor( position.x ) >> CELL_SHIFT, MathHelper.floor( position.z ) >> CELL_SHIFT ),
+                receiver.getRange()
+            );
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if( this == o ) return true;
+            if( !(o instanceof Location) ) return false;
+
+            Location other = (Location) o;
+            return world == other.world && cell == other.cell && indexed == other.indexed;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash( System.identityHashCode( world ), cell, indexed );
+        }
+    }
 }
@@ -8,6 +8,7 @@ package dan200.computercraft.shared.peripheral.monitor;
 
 import com.mojang.blaze3d.platform.GlStateManager;
 import com.mojang.blaze3d.systems.RenderSystem;
+import dan200.computercraft.core.terminal.Terminal;
 import dan200.computercraft.shared.common.ClientTerminal;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
@@ -18,6 +19,8 @@ import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL30;
 import org.lwjgl.opengl.GL31;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -34,7 +37,12 @@ public final class ClientMonitor extends ClientTerminal
 
     public int tboBuffer;
     public int tboTexture;
-    public VertexBuffer buffer;
+    /**
+     * One vertex buffer for each row of the terminal, so that rows may be redrawn individually.
+     */
+    public VertexBuffer[] buffers;
+
+    private final BitSet dirtyRows = new BitSet();
 
     public ClientMonitor( boolean colour, TileMonitor origin )
     {
@@ -95,13 +103,13 @@ public final class ClientMonitor extends ClientTerminal
                 return true;
 
             case VBO:
-                if( buffer != null )
+                if( buffers != null )
                 {
                     return false;
                 }
 
                 deleteBuffers();
-                buffer = new VertexBuffer();
+                buffers = new VertexBuffer[0];
                 addMonitor();
                 return true;
 
@@ -125,13 +133,54 @@ public final class ClientMonitor extends ClientTerminal
             tboTexture = 0;
         }
 
-        if( buffer != null )
+        if( buffers != null )
         {
-            buffer.close();
-            buffer = null;
+            for( VertexBuffer buffer : buffers ) buffer.close();
+            buffers = null;
         }
     }
 
+    /**
+     * Ensure there is one vertex buffer for each row of the terminal. This should only be called after
+     * {@link #createBuffer(MonitorRenderer)} has created the buffers for {@link MonitorRenderer#VBO}.
+     *
+     * @param height The height of the terminal.
+     * @return Whether the number of buffers changed. If so, every row should be redrawn.
+     */
+    @Environment( EnvType.CLIENT )
+    public boolean resizeBuffers( int height )
+    {
+        VertexBuffer[] oldBuffers = buffers;
+        if( oldBuffers.length == height ) return false;
+
+        VertexBuffer[] newBuffers = Arrays.copyOf( oldBuffers, height );
+        for( int i = height; i < oldBuffers.length; i++ ) oldBuffers[i].close();
+        for( int i = oldBuffers.length; i < height; i++ ) newBuffers[i] = new VertexBuffer();
+        buffers = newBuffers;
+        return true;
+    }
+
+    /**
+     * Get the rows of the terminal which have changed since they were last drawn, and reset the change tracking.
+     *
+     * @param includePalette Whether a change to the palette should mark every row as changed. This should be set when
+     *                       the palette is baked into the rendered geometry, rather than passed as a uniform.
+     * @return The changed rows. This set is reused between calls, and so should not be held on to.
+     */
+    @Environment( EnvType.CLIENT )
+    public BitSet pollDirtyRows( boolean includePalette )
+    {
+        dirtyRows.clear();
+
+        Terminal terminal = getTerminal();
+        if( terminal != null && terminal.pollChanges( dirtyRows ) && includePalette )
+        {
+            dirtyRows.set( 0, terminal.getHeight() );
+        }
+
+        return dirtyRows;
+    }
+
     private void addMonitor()
     {
         synchronized( allMonitors )
@@ -143,7 +192,7 @@ public final class ClientMonitor extends ClientTerminal
     @Environment( EnvType.CLIENT )
     public void destroy()
     {
-        if( tboBuffer != 0 || buffer != null )
+        if( tboBuffer != 0 || buffers != null )
         {
             synchronized( allMonitors )
             {
@@ -0,0 +1,262 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.shared.peripheral.monitor;
+
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.shared.network.NetworkHandler;
+import dan200.computercraft.shared.network.client.MonitorClientMessage;
+import dan200.computercraft.shared.network.client.TerminalState;
+import net.fabricmc.fabric.api.networking.v1.PlayerLookup;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
+
+import java.util.*;
+
+/**
+ * Sends the contents of changed monitors to the players tracking them.
+ *
+ * Rather than re-sending the monitor's block entity (and so serialising the whole terminal to NBT), we send a
+ * {@link MonitorClientMessage} to every player tracking the origin monitor's chunk. Players who start tracking the
+ * chunk later on receive the terminal as part of the block entity's initial description instead.
+ *
+ * Updates are limited in several ways:
+ * <ul>
+ * <li>Players further away than the monitor render distance cannot see the monitor, and so are not sent updates at
+ * all. Instead, we remember that they are out of date and send them the whole terminal once they come back in
+ * range.</li>
+ * <li>Each monitor sends at most one update every {@link #MIN_UPDATE_INTERVAL} ticks. This interval grows with the
+ * distance to the nearest player, as text becomes unreadable long before it stops being rendered.</li>
+ * <li>All monitors share a per-tick budget of {@link ComputerCraft#monitorBandwidth} bytes.</li>
+ * </ul>
+ *
+ * Monitors which cannot be sent this tick stay in the queue (coalescing any further changes) until the next one.
+ */
+public final class MonitorWatcher
+{
+    /**
+     * The minimum number of ticks between two updates of the same monitor.
+     */
+    private static final int MIN_UPDATE_INTERVAL = 2;
+
+    /**
+     * The distance (in blocks) within which monitors update at the full rate. Past this, the update interval grows
+     * linearly with distance.
+     */
+    private static final double FULL_RATE_DISTANCE = 16;
+
+    /**
+     * How often (in ticks) we check whether out-of-range players have come back within range.
+     */
+    private static final int RESYNC_INTERVAL = 10;
+
+    /**
+     * Extra distance added to the render distance, so that players are sent an update slightly before the monitor
+     * becomes visible. This also accounts for us measuring from the player's feet rather than their camera.
+     */
+    private static final double RANGE_MARGIN = 4;
+
+    private static final Queue<TileMonitor> watching = new ArrayDeque<>();
+
+    /**
+     * Players which were tracking a monitor when it changed, but were out of range and so not sent the update.
+     */
+    private static final Map<TileMonitor, Set<UUID>> stale = new HashMap<>();
+
+    private static int ticks;
+
+    private MonitorWatcher()
+    {
+    }
+
+    /**
+     * Queue a monitor to be sent to clients at the end of this tick. This should only be called from the server
+     * thread.
+     *
+     * @param monitor The origin monitor whose terminal has changed.
+     */
+    static void enqueue( TileMonitor monitor )
+    {
+        if( monitor.enqueued ) return;
+
+        monitor.enqueued = true;
+        watching.add( monitor );
+    }
+
+    public static void onTick()
+    {
+        long limit = ComputerCraft.monitorBandwidth;
+        boolean obeyLimit = limit > 0;
+
+        if( ++ticks >= RESYNC_INTERVAL )
+        {
+            ticks = 0;
+            if( !stale.isEmpty() ) limit -= resyncStale();
+        }
+
+        if( watching.isEmpty() ) return;
+
+        List<TileMonitor> deferred = null;
+        List<ServerPlayerEntity> players = new ArrayList<>();
+        TileMonitor tile;
+        while( (!obeyLimit || limit > 0) && (tile = watching.poll()) != null )
+        {
+            ServerMonitor monitor = tile.getCachedServerMonitor();
+            World world = tile.getWorld();
+            BlockPos pos = tile.getPos();
+            if( monitor == null || tile.isRemoved() || !(world instanceof ServerWorld serverWorld) || !world.isChunkLoaded( pos ) )
+            {
+                tile.enqueued = false;
+                stale.remove( tile );
+                continue;
+            }
+
+            long time = world.getTime();
+            if( time < tile.nextUpdate )
+            {
+                if( deferred == null ) deferred = new ArrayList<>();
+                deferred.add( tile );
+                continue;
+            }
+
+            tile.enqueued = false;
+
+            // Players who start tracking this chunk later will receive the terminal with the block entity, so there's
+            // no need to send anything (or count against the budget) if nobody is watching right now.
+            Collection<ServerPlayerEntity> tracking = PlayerLookup.tracking( serverWorld, new ChunkPos( pos ) );
+            if( tracking.isEmpty() )
+            {
+                stale.remove( tile );
+                continue;
+            }
+
+            // Only send to players who can see the monitor. Anyone else is now out of date, and will be resynced once
+            // they come within range.
+            players.clear();
+            Vec3d centre = Vec3d.ofCenter( pos );
+            double rangeSq = getRangeSq();
+            double nearestSq = Double.MAX_VALUE;
+            Set<UUID> tileStale = stale.get( tile );
+            for( ServerPlayerEntity player : tracking )
+            {
+                double distanceSq = player.squaredDistanceTo( centre );
+                if( distanceSq <= rangeSq )
+                {
+                    players.add( player );
+                    nearestSq = Math.min( nearestSq, distanceSq );
+                    if( tileStale != null ) tileStale.remove( player.getUuid() );
+                }
+                else
+                {
+                    if( tileStale == null ) stale.put( tile, tileStale = new HashSet<>() );
+                    tileStale.add( player.getUuid() );
+                }
+            }
+
+            if( tileStale != null && tileStale.isEmpty() ) stale.remove( tile );
+            if( players.isEmpty() ) continue;
+
+            TerminalState state = monitor.write();
+            NetworkHandler.sendToPlayers( players, new MonitorClientMessage( pos, state ) );
+
+            tile.nextUpdate = time + getUpdateInterval( nearestSq );
+            limit -= state.size();
+        }
+
+        if( deferred != null ) watching.addAll( deferred );
+    }
+
+    /**
+     * Send the full terminal to any out-of-date players who have come back within range of a monitor.
+     *
+     * @return The number of bytes sent.
+     */
+    private static long resyncStale()
+    {
+        long sent = 0;
+        double rangeSq = getRangeSq();
+        List<ServerPlayerEntity> players = new ArrayList<>();
+
+        Iterator<Map.Entry<TileMonitor, Set<UUID>>> iterator = stale.entrySet().iterator();
+        while( iterator.hasNext() )
+        {
+            Map.Entry<TileMonitor, Set<UUID>> entry = iterator.next();
+            TileMonitor tile = entry.getKey();
+            Set<UUID> tileStale = entry.getValue();
+
+            ServerMonitor monitor = tile.getCachedServerMonitor();
+            World world = tile.getWorld();
+            BlockPos pos = tile.getPos();
+            if( monitor == null || tile.isRemoved() || !(world instanceof ServerWorld serverWorld) || !world.isChunkLoaded( pos ) )
+            {
+                iterator.remove();
+                continue;
+            }
+
+            players.clear();
+            Vec3d centre = Vec3d.ofCenter( pos );
+            Set<UUID> stillStale = new HashSet<>();
+            for( ServerPlayerEntity player : PlayerLookup.tracking( serverWorld, new ChunkPos( pos ) ) )
+            {
+                UUID id = player.getUuid();
+                if( !tileStale.contains( id ) ) continue;
+
+                if( player.squaredDistanceTo( centre ) <= rangeSq )
+                {
+                    players.add( player );
+                }
+                else
+                {
+                    stillStale.add( id );
+                }
+            }
+
+            // Players who have stopped tracking the chunk will get a fresh copy of the terminal when they next load
+            // it, so we only need to remember the ones which are still tracking and out of range.
+            if( stillStale.isEmpty() )
+            {
+                iterator.remove();
+            }
+            else
+            {
+                entry.setValue( stillStale );
+            }
+
+            if( !players.isEmpty() )
+            {
+                TerminalState state = monitor.write();
+                NetworkHandler.sendToPlayers( players, new MonitorClientMessage( pos, state ) );
+                sent += state.size();
+            }
+        }
+
+        return sent;
+    }
+
+    private static double getRangeSq()
+    {
+        double range = ComputerCraft.monitorDistance + RANGE_MARGIN;
+        return range * range;
+    }
+
+    private static int getUpdateInterval( double distanceSq )
+    {
+        double distance = Math.sqrt( distanceSq );
+        if( distance <= FULL_RATE_DISTANCE ) return MIN_UPDATE_INTERVAL;
+        return (int) Math.ceil( MIN_UPDATE_INTERVAL * distance / FULL_RATE_DISTANCE );
+    }
+
+    public static void reset()
+    {
+        for( TileMonitor tile : watching ) tile.enqueued = false;
+        watching.clear();
+        stale.clear();
+        ticks = 0;
+    }
+}
@@ -46,7 +46,7 @@ public class TileMonitor extends TileGeneric implements IPeripheralTile
     private final Set<IComputerAccess> computers = new HashSet<>();
     // MonitorWatcher state.
     boolean enqueued;
-    TerminalState cached;
+    long nextUpdate;
     private ServerMonitor serverMonitor;
     private ClientMonitor clientMonitor;
     private MonitorPeripheral peripheral;
@@ -167,7 +167,7 @@ public class TileMonitor extends TileGeneric implements IPeripheralTile
 
         if( serverMonitor.pollTerminalChanged() )
         {
-            updateBlock();
+            MonitorWatcher.enqueue( this );
         }
     }
 
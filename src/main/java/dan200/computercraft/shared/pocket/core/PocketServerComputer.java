@@ -14,7 +14,6 @@ import dan200.computercraft.core.computer.ComputerSide;
 import dan200.computercraft.shared.common.IColouredItem;
 import dan200.computercraft.shared.computer.core.ComputerFamily;
 import dan200.computercraft.shared.computer.core.ServerComputer;
-import dan200.computercraft.shared.network.NetworkHandler;
 import dan200.computercraft.shared.pocket.items.ItemPocketComputer;
 import dan200.computercraft.shared.util.NBTUtil;
 import net.minecraft.entity.Entity;
@@ -193,18 +192,10 @@ public class PocketServerComputer extends ServerComputer implements IPocketAcces
     }
 
     @Override
-    public void broadcastState( boolean force )
+    protected boolean isTerminalRecipient( PlayerEntity player )
     {
-        super.broadcastState( force );
-
-        if( (hasTerminalChanged() || force) && entity instanceof ServerPlayerEntity )
-        {
-            // Broadcast the state to the current entity if they're not already interacting with it.
-            ServerPlayerEntity player = (ServerPlayerEntity) entity;
-            if( player.networkHandler != null && !isInteracting( player ) )
-            {
-                NetworkHandler.sendToPlayer( player, createTerminalPacket() );
-            }
-        }
+        // Broadcast the state to the current entity even if they're not interacting with it.
+        return super.isTerminalRecipient( player )
+            || (player == entity && ((ServerPlayerEntity) player).networkHandler != null);
     }
 }
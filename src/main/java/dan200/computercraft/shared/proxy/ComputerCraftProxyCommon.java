@@ -27,6 +27,7 @@ import dan200.computercraft.shared.peripheral.commandblock.CommandBlockPeriphera
 import dan200.computercraft.shared.peripheral.generic.methods.InventoryMethods;
 import dan200.computercraft.shared.peripheral.modem.wired.BlockCable;
 import dan200.computercraft.shared.peripheral.modem.wireless.WirelessNetwork;
+import dan200.computercraft.shared.peripheral.monitor.MonitorWatcher;
 import dan200.computercraft.shared.turtle.FurnaceRefuelHandler;
 import dan200.computercraft.shared.turtle.SignInspectHandler;
 import dan200.computercraft.shared.util.Config;
@@ -99,9 +100,15 @@ public final class ComputerCraftProxyCommon
         ServerTickEvents.START_SERVER_TICK.register( server -> {
             MainThread.executePendingTasks();
             ComputerCraft.serverComputerRegistry.update();
+            WirelessNetwork.updateNetworks();
             TickScheduler.tick();
         } );
 
+        ServerTickEvents.END_SERVER_TICK.register( server -> {
+            MonitorWatcher.onTick();
+            NetworkHandler.flush();
+        } );
+
         ServerLifecycleEvents.SERVER_STARTED.register( server -> {
             ComputerCraftProxyCommon.server = server;
             ComputerCraft.serverComputerRegistry.reset();
@@ -112,6 +119,8 @@ public final class ComputerCraftProxyCommon
 
         ServerLifecycleEvents.SERVER_STOPPING.register( server -> {
             ComputerCraft.serverComputerRegistry.reset();
+            NetworkHandler.reset();
+            MonitorWatcher.reset();
             WirelessNetwork.resetNetworks();
             MainThread.reset();
             Tracking.reset();
@@ -106,6 +106,19 @@ public final class Config
                     "Please note that some mods may not work with a thread count higher than 1. Use with caution." );
             serverSpec.defineInRange( "execution.computer_threads", ComputerCraft.computerThreads, 1, Integer.MAX_VALUE );
 
+            serverSpec.comment( "execution.work_stealing",
+                "Give each computer thread its own queue of computers, with idle threads taking work from busy ones.\n" +
+                    "This reduces contention when running many computers on many threads, at the cost of slightly less " +
+                    "even scheduling. Has no effect with a single computer thread. Requires a restart to take effect." );
+            serverSpec.define( "execution.work_stealing", ComputerCraft.computerThreadWorkStealing );
+
+            serverSpec.comment( "execution.virtual_thread_coroutines",
+                "Run Lua coroutines on virtual threads rather than a pool of platform threads. This substantially reduces " +
+                    "the memory used by programs with many coroutines.\n" +
+                    "This requires a JVM which supports virtual threads, and falls back to platform threads otherwise. " +
+                    "Only applies to computers started after it is changed." );
+            serverSpec.define( "execution.virtual_thread_coroutines", ComputerCraft.virtualThreadCoroutines );
+
             serverSpec.comment( "execution.max_main_global_time",
                 "The maximum time that can be spent executing tasks in a single tick, in milliseconds.\n" +
                     "Note, we will quite possibly go over this limit, as there's no way to tell how long a will take " +
@@ -345,6 +358,8 @@ public final class Config
 
             // Execution
             ComputerCraft.computerThreads = serverConfig.<Integer>get( "execution.computer_threads" );
+            ComputerCraft.computerThreadWorkStealing = serverConfig.<Boolean>get( "execution.work_stealing" );
+            ComputerCraft.virtualThreadCoroutines = serverConfig.<Boolean>get( "execution.virtual_thread_coroutines" );
             ComputerCraft.maxMainGlobalTime = TimeUnit.MILLISECONDS.toNanos( serverConfig.<Integer>get( "execution.max_main_global_time" ) );
             ComputerCraft.maxMainComputerTime = TimeUnit.MILLISECONDS.toNanos( serverConfig.<Integer>get( "execution.max_main_computer_time" ) );
 
@@ -392,6 +407,7 @@ public final class Config
         {
             ComputerCraft.monitorRenderer = clientConfig.getEnum( "monitor_renderer", MonitorRenderer.class );
             int distance = clientConfig.get( "monitor_distance" );
+            ComputerCraft.monitorDistance = distance;
             ComputerCraft.monitorDistanceSq = distance * distance;
         }
     }
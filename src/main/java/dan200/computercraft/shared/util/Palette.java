@@ -72,15 +72,28 @@ public class Palette
         }
     }
 
-    public void read( PacketByteBuf buffer )
+    /**
+     * Read a palette written by {@link #write(PacketByteBuf)}.
+     *
+     * @param buffer The buffer to read from.
+     * @return Whether any colour was changed.
+     */
+    public boolean read( PacketByteBuf buffer )
     {
+        boolean changed = false;
         for( double[] colour : colours )
         {
             for( int i = 0; i < colour.length; i++ )
             {
-                colour[i] = (buffer.readByte() & 0xFF) / 255.0;
+                double channel = (buffer.readByte() & 0xFF) / 255.0;
+                if( colour[i] != channel )
+                {
+                    colour[i] = channel;
+                    changed = true;
+                }
             }
         }
+        return changed;
     }
 
     public NbtCompound writeToNBT( NbtCompound nbt )
@@ -9,6 +9,8 @@ package dan200.computercraft.shared.util;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import dan200.computercraft.ComputerCraft;
 
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
 import java.util.concurrent.ThreadFactory;
 
 /**
@@ -67,6 +69,36 @@ public final class ThreadUtils
             .setThreadFactory( x -> new Thread( group, x ) );
     }
 
+    /**
+     * Create a new {@link ThreadFactory} which constructs virtual threads, if the current JVM supports them.
+     *
+     * Virtual threads are only available on newer versions of Java than we compile against, so this is looked up
+     * reflectively. Threads are named in the same format as {@link #factory(String)}, though do not belong to a group.
+     *
+     * @param name The name for the child threads.
+     * @return The constructed thread factory, or {@code null} if virtual threads are not available.
+     */
+    @Nullable
+    public static ThreadFactory virtualFactory( String name )
+    {
+        try
+        {
+            Method ofVirtual = Thread.class.getMethod( "ofVirtual" );
+            Object builder = ofVirtual.invoke( null );
+            Class<?> builderClass = ofVirtual.getReturnType();
+
+            builder = builderClass.getMethod( "name", String.class, long.class )
+                .invoke( builder, baseGroup.getName() + "-" + name + "-", 0L );
+            builder = builderClass.getMethod( "uncaughtExceptionHandler", Thread.UncaughtExceptionHandler.class )
+                .invoke( builder, (Thread.UncaughtExceptionHandler) ( t, e ) -> ComputerCraft.log.error( "Exception in thread " + t.getName(), e ) );
+            return (ThreadFactory) builderClass.getMethod( "factory" ).invoke( builder );
+        }
+        catch( ReflectiveOperationException | RuntimeException e )
+        {
+            return null;
+        }
+    }
+
     /**
      * Construct a group under ComputerCraft's shared group.
      *
@@ -11,11 +11,14 @@ import dan200.computercraft.api.network.Packet;
 import dan200.computercraft.api.network.wired.IWiredNetwork;
 import dan200.computercraft.api.network.wired.IWiredNode;
 import dan200.computercraft.api.peripheral.IPeripheral;
+import dan200.computercraft.shared.peripheral.modem.ChannelIndex;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 
 import javax.annotation.Nonnull;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -25,6 +28,35 @@ public final class WiredNetwork implements IWiredNetwork
     HashSet<WiredNode> nodes;
     private HashMap<String, IPeripheral> peripherals = new HashMap<>();
 
+    /**
+     * Nodes with a receiver listening on a given channel. This is updated by nodes while holding the read lock, and
+     * rebuilt when nodes are moved between networks.
+     */
+    private final Map<Integer, Set<WiredNode>> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * Nodes with a receiver whose channels are not tracked, and so may receive packets on any channel.
+     *
+     * @see ChannelIndex#isTracked
+     */
+    final Set<WiredNode> untracked = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+
+    /**
+     * The shortest path from a sending node to every node with receivers. This is computed lazily (while holding the
+     * read lock), and replaced whenever nodes are connected, disconnected or removed.
+     *
+     * We replace the map rather than clearing it, so that any routes computed concurrently with an invalidation are
+     * stored in the old, discarded, map.
+     */
+    private volatile Map<WiredNode, Route[]> routes = new ConcurrentHashMap<>();
+
+    /*
+     * The number of transmissions which used a cached route, and which had to search the network. These are shared by
+     * every network (and modem thread), so use LongAdders to avoid contending on a single counter.
+     */
+    private static final LongAdder routeHits = new LongAdder();
+    private static final LongAdder routeMisses = new LongAdder();
+
     WiredNetwork( WiredNode node )
     {
         nodes = new HashSet<>( 1 );
@@ -36,21 +68,118 @@ public final class WiredNetwork implements IWiredNetwork
         this.nodes = nodes;
     }
 
+    /**
+     * Update whether a node is listening on a channel. This should be called with the read lock held, and while
+     * synchronized on the node.
+     *
+     * @param node    The node whose receivers have changed.
+     * @param channel The channel which was opened or closed.
+     */
+    void updateIndex( WiredNode node, int channel )
+    {
+        ChannelIndex receivers = node.receivers;
+        boolean listening = receivers != null && receivers.isListening( channel );
+        listeners.compute( channel, ( k, nodes ) -> {
+            if( listening )
+            {
+                if( nodes == null ) nodes = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+                nodes.add( node );
+            }
+            else if( nodes != null )
+            {
+                nodes.remove( node );
+                if( nodes.isEmpty() ) nodes = null;
+            }
+            return nodes;
+        } );
+    }
+
+    /**
+     * Add all of a node's channels to this network. This should be called with the write lock held.
+     *
+     * @param node The node which has joined this network.
+     */
+    private void index( WiredNode node )
+    {
+        ChannelIndex receivers = node.receivers;
+        if( receivers == null ) return;
+
+        for( int channel : receivers.getChannels() ) updateIndex( node, channel );
+        if( receivers.hasUntracked() ) untracked.add( node );
+    }
+
+    /**
+     * Remove all of a node's channels from this network. This should be called with the write lock held.
+     *
+     * @param node The node which has left this network.
+     */
+    private void unindex( WiredNode node )
+    {
+        ChannelIndex receivers = node.receivers;
+        if( receivers == null ) return;
+
+        for( int channel : receivers.getChannels() )
+        {
+            listeners.computeIfPresent( channel, ( k, nodes ) -> {
+                nodes.remove( node );
+                return nodes.isEmpty() ? null : nodes;
+            } );
+        }
+        untracked.remove( node );
+    }
+
     static void transmitPacket( WiredNode start, Packet packet, double range, boolean interdimensional )
+    {
+        // Skip searching the network entirely if nobody is listening on this channel.
+        WiredNetwork network = start.network;
+        int channel = packet.getChannel();
+        if( network.untracked.isEmpty() && !network.listeners.containsKey( channel ) ) return;
+
+        Map<WiredNode, Route[]> routeTable = network.routes;
+        Route[] routes = routeTable.get( start );
+        if( routes == null )
+        {
+            routeMisses.increment();
+            routes = findRoutes( start );
+            routeTable.put( start, routes );
+        }
+        else
+        {
+            routeHits.increment();
+        }
+
+        // Routes are relative to the start node, so offset them by the sender's distance to it.
+        boolean startInterdimensional = start.element.getWorld() != packet.getSender().getWorld();
+        double startDistance = startInterdimensional ? Double.POSITIVE_INFINITY : start.element.getPosition().distanceTo( packet.getSender().getPosition() );
+
+        for( Route route : routes )
+        {
+            ChannelIndex receivers = route.node.receivers;
+            if( receivers == null || !receivers.hasListeners( channel ) ) continue;
+
+            route.node.tryTransmit(
+                packet, startDistance + route.distance,
+                route.node == start ? startInterdimensional : route.interdimensional,
+                range, interdimensional
+            );
+        }
+    }
+
+    /**
+     * Find the shortest path from a node to every other node with receivers in this network.
+     *
+     * This should be called with the read lock held.
+     *
+     * @param start The node to search from.
+     * @return The distance to every node which may receive packets.
+     */
+    private static Route[] findRoutes( WiredNode start )
     {
         Map<WiredNode, TransmitPoint> points = new HashMap<>();
         TreeSet<TransmitPoint> transmitTo = new TreeSet<>();
 
         {
-            TransmitPoint startEntry = start.element.getWorld() != packet.getSender()
-                .getWorld() ? new TransmitPoint( start,
-                Double.POSITIVE_INFINITY,
-                true ) : new TransmitPoint( start,
-                start.element.getPosition()
-                    .distanceTo(
-                        packet.getSender()
-                            .getPosition() ),
-                false );
+            TransmitPoint startEntry = new TransmitPoint( start, 0, false );
             points.put( start, startEntry );
             transmitTo.add( startEntry );
         }
@@ -95,10 +224,31 @@ public final class WiredNetwork implements IWiredNetwork
             }
         }
 
+        List<Route> routes = new ArrayList<>();
         for( TransmitPoint point : points.values() )
         {
-            point.node.tryTransmit( packet, point.distance, point.interdimensional, range, interdimensional );
+            if( point.node.receivers != null ) routes.add( new Route( point.node, point.distance, point.interdimensional ) );
         }
+        return routes.toArray( new Route[0] );
+    }
+
+    /**
+     * Discard all cached routes, as the network's topology or receivers have changed.
+     */
+    void invalidateRoutes()
+    {
+        routes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the number of transmissions which used a cached route, and the number which needed to search the network.
+     * These are shown by {@code /computercraft track network}.
+     *
+     * @return The number of cache hits and misses.
+     */
+    public static long[] getRouteCacheStats()
+    {
+        return new long[] { routeHits.sum(), routeMisses.sum() };
     }
 
     @Override
@@ -147,8 +297,12 @@ public final class WiredNetwork implements IWiredNetwork
                     for( WiredNode node : otherNodes )
                     {
                         node.network = this;
+                        index( node );
                     }
                     other.nodes = null;
+                    other.listeners.clear();
+                    other.untracked.clear();
+                    other.invalidateRoutes();
 
                     // Move all peripherals across,
                     other.peripherals = null;
@@ -177,6 +331,7 @@ public final class WiredNetwork implements IWiredNetwork
             if( added )
             {
                 wiredV.neighbours.add( wiredU );
+                invalidateRoutes();
             }
 
             InvariantChecker.checkNetwork( this );
@@ -219,50 +374,32 @@ public final class WiredNetwork implements IWiredNetwork
                 return false;
             }
             wiredV.neighbours.remove( wiredU );
+            invalidateRoutes();
 
-            // Determine if there is still some connection from u to v.
-            // Note this is an inlining of reachableNodes which short-circuits
-            // if all nodes are reachable.
-            Queue<WiredNode> enqueued = new ArrayDeque<>();
-            HashSet<WiredNode> reachableU = new HashSet<>();
-
-            reachableU.add( wiredU );
-            enqueued.add( wiredU );
-
-            while( !enqueued.isEmpty() )
+            // Determine if there is still some connection from u to v. If not, we split off whichever side is smaller.
+            List<HashSet<WiredNode>> separated = findSeparated( Arrays.asList( wiredU, wiredV ) );
+            if( separated.isEmpty() )
             {
-                WiredNode node = enqueued.remove();
-                for( WiredNode neighbour : node.neighbours )
-                {
-                    // If we can reach wiredV from wiredU then abort.
-                    if( neighbour == wiredV )
-                    {
-                        return true;
-                    }
-
-                    // Otherwise attempt to enqueue this neighbour as well.
-                    if( reachableU.add( neighbour ) )
-                    {
-                        enqueued.add( neighbour );
-                    }
-                }
+                return true;
             }
 
-            // Create a new network with all U-reachable nodes/edges and remove them
-            // from the existing graph.
-            WiredNetwork networkU = new WiredNetwork( reachableU );
-            networkU.lock.writeLock()
+            // Create a new network with all nodes/edges of the smaller side and remove them from the existing graph.
+            HashSet<WiredNode> splitNodes = separated.get( 0 );
+            WiredNetwork networkSplit = new WiredNetwork( splitNodes );
+            networkSplit.lock.writeLock()
                 .lock();
             try
             {
                 // Remove nodes from this network
-                nodes.removeAll( reachableU );
+                nodes.removeAll( splitNodes );
 
                 // Set network and transfer peripherals
-                for( WiredNode node : reachableU )
+                for( WiredNode node : splitNodes )
                 {
-                    node.network = networkU;
-                    networkU.peripherals.putAll( node.peripherals );
+                    node.network = networkSplit;
+                    unindex( node );
+                    networkSplit.index( node );
+                    networkSplit.peripherals.putAll( node.peripherals );
                     peripherals.keySet()
                         .removeAll( node.peripherals.keySet() );
                 }
@@ -271,16 +408,16 @@ public final class WiredNetwork implements IWiredNetwork
                 if( !peripherals.isEmpty() )
                 {
                     WiredNetworkChange.removed( peripherals )
-                        .broadcast( networkU.nodes );
+                        .broadcast( networkSplit.nodes );
                 }
-                if( !networkU.peripherals.isEmpty() )
+                if( !networkSplit.peripherals.isEmpty() )
                 {
-                    WiredNetworkChange.removed( networkU.peripherals )
+                    WiredNetworkChange.removed( networkSplit.peripherals )
                         .broadcast( nodes );
                 }
 
                 InvariantChecker.checkNetwork( this );
-                InvariantChecker.checkNetwork( networkU );
+                InvariantChecker.checkNetwork( networkSplit );
                 InvariantChecker.checkNode( wiredU );
                 InvariantChecker.checkNode( wiredV );
 
@@ -288,7 +425,7 @@ public final class WiredNetwork implements IWiredNetwork
             }
             finally
             {
-                networkU.lock.writeLock()
+                networkSplit.lock.writeLock()
                     .unlock();
             }
         }
@@ -323,6 +460,7 @@ public final class WiredNetwork implements IWiredNetwork
             }
 
             HashSet<WiredNode> neighbours = wired.neighbours;
+            invalidateRoutes();
 
             // Remove this node and move into a separate network.
             nodes.remove( wired );
@@ -344,11 +482,10 @@ public final class WiredNetwork implements IWiredNetwork
                 return true;
             }
 
-            HashSet<WiredNode> reachable = reachableNodes( neighbours.iterator()
-                .next() );
-
-            // If all nodes are reachable then exit.
-            if( reachable.size() == nodes.size() )
+            // Search outwards from each neighbour to find any parts of the network which are no longer connected. The
+            // part found last (and so normally the largest) remains in this network.
+            List<HashSet<WiredNode>> separated = findSeparated( neighbours );
+            if( separated.isEmpty() )
             {
                 // Broadcast our simple peripheral changes
                 removeSingleNode( wired, wiredNetwork );
@@ -357,20 +494,9 @@ public final class WiredNetwork implements IWiredNetwork
                 return true;
             }
 
-            // A split may cause 2..neighbours.size() separate networks, so we
-            // iterate through our neighbour list, generating child networks.
-            neighbours.removeAll( reachable );
-            ArrayList<WiredNetwork> maximals = new ArrayList<>( neighbours.size() + 1 );
+            ArrayList<WiredNetwork> maximals = new ArrayList<>( separated.size() + 1 );
             maximals.add( wiredNetwork );
-            maximals.add( new WiredNetwork( reachable ) );
-
-            while( !neighbours.isEmpty() )
-            {
-                reachable = reachableNodes( neighbours.iterator()
-                    .next() );
-                neighbours.removeAll( reachable );
-                maximals.add( new WiredNetwork( reachable ) );
-            }
+            for( HashSet<WiredNode> part : separated ) maximals.add( new WiredNetwork( part ) );
 
             for( WiredNetwork network : maximals )
             {
@@ -380,20 +506,37 @@ public final class WiredNetwork implements IWiredNetwork
 
             try
             {
+                Map<String, IPeripheral> oldPeripherals = new HashMap<>( peripherals );
+                Map<String, IPeripheral> removedPeripherals = new HashMap<>( wired.peripherals );
+
                 // We special case the original node: detaching all peripherals when needed.
+                peripherals.keySet()
+                    .removeAll( wired.peripherals.keySet() );
                 wired.network = wiredNetwork;
+                wired.neighbours.clear();
                 wired.peripherals = Collections.emptyMap();
+                unindex( wired );
+                wiredNetwork.index( wired );
 
-                // Ensure every network is finalised
-                for( WiredNetwork network : maximals )
+                // Move every separated node into its new network. Nodes which remain connected are left untouched.
+                for( int i = 1; i < maximals.size(); i++ )
                 {
+                    WiredNetwork network = maximals.get( i );
+                    nodes.removeAll( network.nodes );
                     for( WiredNode child : network.nodes )
                     {
                         child.network = network;
+                        unindex( child );
+                        network.index( child );
                         network.peripherals.putAll( child.peripherals );
                     }
+
+                    peripherals.keySet()
+                        .removeAll( network.peripherals.keySet() );
+                    removedPeripherals.putAll( network.peripherals );
                 }
 
+                InvariantChecker.checkNetwork( this );
                 for( WiredNetwork network : maximals )
                 {
                     InvariantChecker.checkNetwork( network );
@@ -403,9 +546,14 @@ public final class WiredNetwork implements IWiredNetwork
                 // Then broadcast network changes once all nodes are finalised
                 for( WiredNetwork network : maximals )
                 {
-                    WiredNetworkChange.changeOf( peripherals, network.peripherals )
+                    WiredNetworkChange.changeOf( oldPeripherals, network.peripherals )
                         .broadcast( network.nodes );
                 }
+                if( !removedPeripherals.isEmpty() )
+                {
+                    WiredNetworkChange.removed( removedPeripherals )
+                        .broadcast( nodes );
+                }
             }
             finally
             {
@@ -416,9 +564,6 @@ public final class WiredNetwork implements IWiredNetwork
                 }
             }
 
-            nodes.clear();
-            peripherals.clear();
-
             return true;
         }
         finally
@@ -483,6 +628,8 @@ public final class WiredNetwork implements IWiredNetwork
             wired.network = wiredNetwork;
             wired.neighbours.clear();
             wired.peripherals = Collections.emptyMap();
+            unindex( wired );
+            wiredNetwork.index( wired );
 
             // Broadcast the change
             if( !peripherals.isEmpty() )
@@ -508,28 +655,73 @@ public final class WiredNetwork implements IWiredNetwork
         }
     }
 
-    private static HashSet<WiredNode> reachableNodes( WiredNode start )
+    /**
+     * Find which parts of the network are no longer connected to each other, after some edges have been removed.
+     *
+     * Rather than searching the whole network, we search outwards from every starting node at once, visiting one node
+     * from each search in turn. Searches which meet are merged together. Once every search but one has run out of
+     * nodes, the remaining search must cover the rest of the network. This means we only visit (roughly) as many nodes
+     * as there are in the parts which were separated, rather than the whole network.
+     *
+     * @param starts The nodes adjacent to the removed edges.
+     * @return The nodes in each part which has been separated from the rest of the network. This is empty if the
+     * network is still connected.
+     */
+    private static List<HashSet<WiredNode>> findSeparated( Collection<WiredNode> starts )
     {
-        Queue<WiredNode> enqueued = new ArrayDeque<>();
-        HashSet<WiredNode> reachable = new HashSet<>();
-
-        reachable.add( start );
-        enqueued.add( start );
+        Map<WiredNode, Search> owners = new HashMap<>();
+        List<Search> active = new ArrayList<>( starts.size() );
+        for( WiredNode start : starts )
+        {
+            Search search = new Search();
+            search.visit( start );
+            owners.put( start, search );
+            active.add( search );
+        }
 
-        WiredNode node;
-        while( (node = enqueued.poll()) != null )
+        List<HashSet<WiredNode>> separated = new ArrayList<>();
+        int index = 0;
+        while( active.size() > 1 )
         {
+            if( index >= active.size() ) index = 0;
+
+            Search search = active.get( index );
+            WiredNode node = search.queue.poll();
+            if( node == null )
+            {
+                // This search has run out of nodes, so it has found a complete part of the network.
+                separated.add( search.nodes );
+                active.remove( index );
+                continue;
+            }
+
             for( WiredNode neighbour : node.neighbours )
             {
-                // Otherwise attempt to enqueue this neighbour as well.
-                if( reachable.add( neighbour ) )
+                Search owner = owners.get( neighbour );
+                if( owner == null )
                 {
-                    enqueued.add( neighbour );
+                    owners.put( neighbour, search );
+                    search.visit( neighbour );
+                    continue;
                 }
+
+                owner = owner.find();
+                if( owner == search ) continue;
+
+                // These two searches are in the same part of the network, so merge the smaller into the larger.
+                Search larger = owner.nodes.size() > search.nodes.size() ? owner : search;
+                Search smaller = larger == owner ? search : owner;
+                larger.nodes.addAll( smaller.nodes );
+                larger.queue.addAll( smaller.queue );
+                smaller.parent = larger;
+                active.remove( smaller );
+                search = larger;
             }
+
+            index = active.indexOf( search ) + 1;
         }
 
-        return reachable;
+        return separated;
     }
 
     private static WiredNode checkNode( IWiredNode node )
@@ -564,4 +756,38 @@ public final class WiredNetwork implements IWiredNetwork
             return distance == o.distance ? Integer.compare( node.hashCode(), o.node.hashCode() ) : Double.compare( distance, o.distance );
         }
     }
+
+    private static final class Search
+    {
+        final HashSet<WiredNode> nodes = new HashSet<>();
+        final Queue<WiredNode> queue = new ArrayDeque<>();
+        Search parent;
+
+        void visit( WiredNode node )
+        {
+            nodes.add( node );
+            queue.add( node );
+        }
+
+        Search find()
+        {
+            Search search = this;
+            while( search.parent != null ) search = search.parent;
+            return search;
+        }
+    }
+
+    private static final class Route
+    {
+        final WiredNode node;
+        final double distance;
+        final boolean interdimensional;
+
+        Route( WiredNode node, double distance, boolean interdimensional )
+        {
+            this.node = node;
+            this.distance = distance;
+            this.interdimensional = interdimensional;
+        }
+    }
 }
@@ -13,18 +13,33 @@ import dan200.computercraft.api.network.wired.IWiredNetwork;
 import dan200.computercraft.api.network.wired.IWiredNode;
 import dan200.computercraft.api.network.wired.IWiredSender;
 import dan200.computercraft.api.peripheral.IPeripheral;
+import dan200.computercraft.shared.peripheral.modem.ChannelIndex;
+import dan200.computercraft.shared.peripheral.modem.IChannelNetwork;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
 
 import javax.annotation.Nonnull;
 import java.util.*;
 import java.util.concurrent.locks.Lock;
 
-public final class WiredNode implements IWiredNode
+public final class WiredNode implements IWiredNode, IChannelNetwork
 {
     final IWiredElement element;
     final HashSet<WiredNode> neighbours = new HashSet<>();
     Map<String, IPeripheral> peripherals = Collections.emptyMap();
     volatile WiredNetwork network;
-    private Set<IPacketReceiver> receivers;
+
+    /**
+     * The receivers attached to this node, indexed by channel. This is read without holding a lock when transmitting
+     * packets, so is only initialised once.
+     */
+    volatile ChannelIndex receivers;
+
+    /**
+     * The channels each receiver is listening on, or {@code null} if the receiver's channels are not tracked.
+     */
+    private Map<IPacketReceiver, IntSet> receiverChannels;
 
     public WiredNode( IWiredElement element )
     {
@@ -33,21 +48,93 @@ public final class WiredNode implements IWiredNode
     }
 
     @Override
-    public synchronized void addReceiver( @Nonnull IPacketReceiver receiver )
+    public void addReceiver( @Nonnull IPacketReceiver receiver )
     {
-        if( receivers == null )
+        acquireReadLock();
+        try
         {
-            receivers = new HashSet<>();
+            synchronized( this )
+            {
+                if( receivers == null )
+                {
+                    receiverChannels = new HashMap<>();
+                    receivers = new ChannelIndex();
+
+                    // Cached routes only include nodes with receivers, so must be recomputed.
+                    network.invalidateRoutes();
+                }
+                if( receiverChannels.containsKey( receiver ) ) return;
+
+                IntSet channels = ChannelIndex.isTracked( receiver ) ? new IntOpenHashSet() : null;
+                receiverChannels.put( receiver, channels );
+                receivers.add( receiver, channels );
+                if( channels == null ) network.untracked.add( this );
+            }
+        }
+        finally
+        {
+            network.lock.readLock()
+                .unlock();
         }
-        receivers.add( receiver );
     }
 
     @Override
-    public synchronized void removeReceiver( @Nonnull IPacketReceiver receiver )
+    public void removeReceiver( @Nonnull IPacketReceiver receiver )
     {
-        if( receivers != null )
+        acquireReadLock();
+        try
         {
-            receivers.remove( receiver );
+            synchronized( this )
+            {
+                if( receivers == null || !receiverChannels.containsKey( receiver ) ) return;
+
+                IntSet channels = receiverChannels.remove( receiver );
+                receivers.remove( receiver, channels );
+                if( channels == null )
+                {
+                    if( !receivers.hasUntracked() ) network.untracked.remove( this );
+                }
+                else
+                {
+                    for( IntIterator it = channels.iterator(); it.hasNext(); ) network.updateIndex( this, it.nextInt() );
+                }
+            }
+        }
+        finally
+        {
+            network.lock.readLock()
+                .unlock();
+        }
+    }
+
+    @Override
+    public void setChannelOpen( @Nonnull IPacketReceiver receiver, int channel, boolean open )
+    {
+        acquireReadLock();
+        try
+        {
+            synchronized( this )
+            {
+                IntSet channels = receiverChannels == null ? null : receiverChannels.get( receiver );
+                if( channels == null ) return;
+
+                if( open ? !channels.add( channel ) : !channels.remove( channel ) ) return;
+
+                if( open )
+                {
+                    receivers.open( receiver, channel );
+                }
+                else
+                {
+                    receivers.close( receiver, channel );
+                }
+                network.updateIndex( this, channel );
+            }
+        }
+        finally
+        {
+            network.lock.readLock()
+                .unlock();
         }
     }
 
@@ -101,9 +188,9 @@ public final class WiredNode implements IWiredNode
 
     private void acquireReadLock()
     {
-        WiredNetwork currentNetwork = network;
         while( true )
         {
+            WiredNetwork currentNetwork = network;
             Lock lock = currentNetwork.lock.readLock();
             lock.lock();
             if( currentNetwork == network )
@@ -116,15 +203,15 @@ public final class WiredNode implements IWiredNode
         }
     }
 
-    synchronized void tryTransmit( Packet packet, double packetDistance, boolean packetInterdimensional, double range, boolean interdimensional )
+    void tryTransmit( Packet packet, double packetDistance, boolean packetInterdimensional, double range, boolean interdimensional )
     {
+        ChannelIndex receivers = this.receivers;
         if( receivers == null )
         {
             return;
         }
 
-        for( IPacketReceiver receiver : receivers )
-        {
+        receivers.forEach( packet.getChannel(), receiver -> {
             if( !packetInterdimensional )
             {
                 double receiveRange = Math.max( range, receiver.getRange() ); // Ensure range is symmetrical
@@ -142,7 +229,7 @@ public final class WiredNode implements IWiredNode
                     receiver.receiveDifferentDimension( packet );
                 }
             }
-        }
+        } );
     }
 
     @Nonnull
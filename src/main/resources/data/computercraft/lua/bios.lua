@@ -612,12 +612,19 @@ if http then
         checkKey(options, "headers", "table", true)
         checkKey(options, "method", "string", true)
         checkKey(options, "redirect", "boolean", true)
+        checkKey(options, "stream", "boolean", true)
 
         if options.method and not methods[options.method] then
             error("Unsupported HTTP method", 3)
         end
     end
 
+    local function checkWebsocketOptions(options)
+        checkKey(options, "url", "string")
+        checkKey(options, "headers", "table", true)
+        checkKey(options, "buffered", "boolean", true)
+    end
+
     local function wrapRequest(_url, ...)
         local ok, err = nativeHTTPRequest(...)
         if ok then
@@ -694,10 +701,18 @@ if http then
     local nativeWebsocket = http.websocket
     http.websocketAsync = nativeWebsocket
     http.websocket = function(_url, _headers)
-        expect(1, _url, "string")
-        expect(2, _headers, "table", "nil")
+        local ok, err
+        if type(_url) == "table" then
+            checkWebsocketOptions(_url)
 
-        local ok, err = nativeWebsocket(_url, _headers)
+            ok, err = nativeWebsocket(_url)
+            _url = _url.url
+        else
+            expect(1, _url, "string")
+            expect(2, _headers, "table", "nil")
+
+            ok, err = nativeWebsocket(_url, _headers)
+        end
         if not ok then return ok, err end
 
         while true do